@@ -14,48 +14,224 @@
 
 import static org.artofsolving.jodconverter.office.OfficeUtils.SERVICE_DESKTOP;
 import static org.artofsolving.jodconverter.office.OfficeUtils.cast;
+import static org.artofsolving.jodconverter.office.OfficeUtils.merge;
+import static org.artofsolving.jodconverter.office.OfficeUtils.property;
 import static org.artofsolving.jodconverter.office.OfficeUtils.toUnoProperties;
 import static org.artofsolving.jodconverter.office.OfficeUtils.toUrl;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
 import org.artofsolving.jodconverter.office.OfficeContext;
 import org.artofsolving.jodconverter.office.OfficeException;
 import org.artofsolving.jodconverter.office.OfficeTask;
+import org.artofsolving.jodconverter.office.OfficeTaskPriority;
 
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.frame.XComponentLoader;
 import com.sun.star.frame.XStorable;
 import com.sun.star.io.IOException;
 import com.sun.star.lang.IllegalArgumentException;
 import com.sun.star.lang.XComponent;
+import com.sun.star.lib.uno.adapter.ByteArrayToXInputStreamAdapter;
+import com.sun.star.lib.uno.adapter.OutputStreamToXOutputStreamAdapter;
 import com.sun.star.task.ErrorCodeIOException;
 import com.sun.star.util.CloseVetoException;
 import com.sun.star.util.XCloseable;
 
 public abstract class AbstractConversionTask implements OfficeTask
 {
+    /** The URL to load from, or store to, the stream given in the media descriptor. */
+    private static final String STREAM_URL = "private:stream";
+
     private final File inputFile;
 
-    private final File outputFile;
+    private final List<File> outputFiles;
+
+    private final InputStream inputStream;
+
+    private final byte[] inputBytes;
+
+    private final OutputStream outputStream;
+
+    private OfficeTaskPriority priority = OfficeTaskPriority.NORMAL;
+
+    private long estimatedCost = -1; // -1: estimated from the input file
+
+    private long executionTimeout;
+
+    private long deadline = NO_DEADLINE;
 
     public AbstractConversionTask(File inputFile, File outputFile)
+    {
+        this(inputFile, Collections.singletonList(outputFile));
+    }
+
+    /**
+     * Creates a task that loads the document once and stores it to each of the given files.
+     * 
+     * @param inputFile the document to convert
+     * @param outputFiles the files to write, in order
+     */
+    public AbstractConversionTask(File inputFile, Collection<File> outputFiles)
     {
         this.inputFile = inputFile;
-        this.outputFile = outputFile;
+        this.outputFiles = new ArrayList<File>(outputFiles);
+        this.inputStream = null;
+        this.inputBytes = null;
+        this.outputStream = null;
+    }
+
+    /**
+     * Creates a task that reads the document from a stream and writes the result to another stream, without any
+     * temporary file. The streams are not closed.
+     * <p>
+     * The input is buffered in memory, since most office import filters need to seek in the document. It is read
+     * once the task runs, i.e. while holding an office process; prefer
+     * {@link #AbstractConversionTask(byte[], OutputStream)} for slow streams.
+     * 
+     * @param inputStream the document to convert
+     * @param outputStream where to write the converted document
+     */
+    public AbstractConversionTask(InputStream inputStream, OutputStream outputStream)
+    {
+        this.inputFile = null;
+        this.outputFiles = Collections.singletonList(null);
+        this.inputStream = inputStream;
+        this.inputBytes = null;
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Creates a task that converts a document already read into memory and writes the result to a stream, which is
+     * not closed.
+     * 
+     * @param inputBytes the content of the document to convert
+     * @param outputStream where to write the converted document
+     */
+    public AbstractConversionTask(byte[] inputBytes, OutputStream outputStream)
+    {
+        this.inputFile = null;
+        this.outputFiles = Collections.singletonList(null);
+        this.inputStream = null;
+        this.inputBytes = inputBytes;
+        this.outputStream = outputStream;
+    }
+
+    public OfficeTaskPriority getPriority()
+    {
+        return this.priority;
+    }
+
+    public void setPriority(OfficeTaskPriority priority)
+    {
+        this.priority = priority;
+    }
+
+    public long getEstimatedCost()
+    {
+        return this.estimatedCost >= 0 ? this.estimatedCost : estimateCost(this.inputFile);
+    }
+
+    /**
+     * @param estimatedCost the cost of this task, overriding the one estimated from the input file
+     */
+    public void setEstimatedCost(long estimatedCost)
+    {
+        this.estimatedCost = estimatedCost;
+    }
+
+    /**
+     * @param inputFile the input file, <code>null</code> when converting from a stream
+     * @return the estimated cost of converting the input document, its size in kilobytes by default; 0 for a stream
+     *         that hasn't been read yet
+     */
+    protected long estimateCost(File inputFile)
+    {
+        if (inputFile != null) {
+            return inputFile.length() / 1024;
+        }
+        return this.inputBytes != null ? this.inputBytes.length / 1024 : 0;
+    }
+
+    public long getExecutionTimeout()
+    {
+        return this.executionTimeout;
+    }
+
+    /**
+     * @param executionTimeout how long the conversion may run, in milliseconds, or 0 to use the timeout of the office
+     *            manager
+     */
+    public void setExecutionTimeout(long executionTimeout)
+    {
+        this.executionTimeout = executionTimeout;
+    }
+
+    public long getDeadline()
+    {
+        return this.deadline;
     }
 
+    /**
+     * @param deadline the time, as given by {@link System#nanoTime()}, by which the conversion must be done, or
+     *            {@link OfficeTask#NO_DEADLINE}
+     */
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param inputFile the input file, <code>null</code> when converting from a stream
+     */
     protected abstract Map<String, ? > getLoadProperties(File inputFile);
 
+    /**
+     * @param outputFile the output file, <code>null</code> when converting to a stream
+     */
     protected abstract Map<String, ? > getStoreProperties(File outputFile, XComponent document);
 
+    /**
+     * Override to provide precomputed UNO properties instead of converting {@link #getLoadProperties(File)} for each
+     * conversion. The returned array is not modified.
+     * 
+     * @param inputFile the input file, <code>null</code> when converting from a stream
+     */
+    protected PropertyValue[] getUnoLoadProperties(File inputFile)
+    {
+        return toUnoProperties(getLoadProperties(inputFile));
+    }
+
+    /**
+     * Override to provide precomputed UNO properties instead of converting
+     * {@link #getStoreProperties(File, XComponent)} for each conversion. The returned array is not modified.
+     * 
+     * @param outputFile the output file, <code>null</code> when converting to a stream
+     * @return the store properties, or <code>null</code> if the document can't be stored in the output format
+     */
+    protected PropertyValue[] getUnoStoreProperties(File outputFile, XComponent document)
+    {
+        Map<String, ? > storeProperties = getStoreProperties(outputFile, document);
+        return storeProperties != null ? toUnoProperties(storeProperties) : null;
+    }
+
     public void execute(OfficeContext context) throws OfficeException
     {
         XComponent document = null;
         try {
             document = loadDocument(context, this.inputFile);
             modifyDocument(document, context);
-            storeDocument(document, this.outputFile);
+            for (File outputFile : this.outputFiles) {
+                storeDocument(document, outputFile);
+            }
         } catch (OfficeException officeException) {
             throw officeException;
         } catch (Exception exception) {
@@ -78,24 +254,44 @@ public void execute(OfficeContext context) throws OfficeException
 
     private XComponent loadDocument(OfficeContext context, File inputFile) throws OfficeException
     {
-        if (!inputFile.exists()) {
-            throw new OfficeException("input document not found");
+        String url;
+        String name;
+        PropertyValue[] loadProperties;
+        if (this.inputStream != null || this.inputBytes != null) {
+            url = STREAM_URL;
+            name = "stream";
+            byte[] bytes = this.inputBytes;
+            if (bytes == null) {
+                try {
+                    bytes = IOUtils.toByteArray(this.inputStream);
+                } catch (java.io.IOException ioException) {
+                    throw new OfficeException("could not read input stream", ioException);
+                }
+            }
+            loadProperties =
+                merge(getUnoLoadProperties(null), property("InputStream", new ByteArrayToXInputStreamAdapter(bytes)));
+        } else {
+            if (!inputFile.exists()) {
+                throw new OfficeException("input document not found");
+            }
+            url = toUrl(inputFile);
+            name = inputFile.getName();
+            loadProperties = getUnoLoadProperties(inputFile);
         }
         XComponentLoader loader = cast(XComponentLoader.class, context.getService(SERVICE_DESKTOP));
-        Map<String, ? > loadProperties = getLoadProperties(inputFile);
         XComponent document = null;
         try {
-            document = loader.loadComponentFromURL(toUrl(inputFile), "_blank", 0, toUnoProperties(loadProperties));
+            document = loader.loadComponentFromURL(url, "_blank", 0, loadProperties);
         } catch (IllegalArgumentException illegalArgumentException) {
-            throw new OfficeException("could not load document: " + inputFile.getName(), illegalArgumentException);
+            throw new OfficeException("could not load document: " + name, illegalArgumentException);
         } catch (ErrorCodeIOException errorCodeIOException) {
-            throw new OfficeException("could not load document: " + inputFile.getName() + "; errorCode: "
+            throw new OfficeException("could not load document: " + name + "; errorCode: "
                 + errorCodeIOException.ErrCode, errorCodeIOException);
         } catch (IOException ioException) {
-            throw new OfficeException("could not load document: " + inputFile.getName(), ioException);
+            throw new OfficeException("could not load document: " + name, ioException);
         }
         if (document == null) {
-            throw new OfficeException("could not load document: " + inputFile.getName());
+            throw new OfficeException("could not load document: " + name);
         }
         return document;
     }
@@ -116,17 +312,28 @@ protected void modifyDocument(XComponent document, OfficeContext context) throws
 
     private void storeDocument(XComponent document, File outputFile) throws OfficeException
     {
-        Map<String, ? > storeProperties = getStoreProperties(outputFile, document);
+        PropertyValue[] storeProperties = getUnoStoreProperties(outputFile, document);
         if (storeProperties == null) {
             throw new OfficeException("unsupported conversion");
         }
+        String url;
+        String name;
+        if (this.outputStream != null) {
+            url = STREAM_URL;
+            name = "stream";
+            storeProperties = merge(storeProperties,
+                property("OutputStream", new OutputStreamToXOutputStreamAdapter(this.outputStream)));
+        } else {
+            url = toUrl(outputFile);
+            name = outputFile.getName();
+        }
         try {
-            cast(XStorable.class, document).storeToURL(toUrl(outputFile), toUnoProperties(storeProperties));
+            cast(XStorable.class, document).storeToURL(url, storeProperties);
         } catch (ErrorCodeIOException errorCodeIOException) {
-            throw new OfficeException("could not store document: " + outputFile.getName() + "; errorCode: "
+            throw new OfficeException("could not store document: " + name + "; errorCode: "
                 + errorCodeIOException.ErrCode, errorCodeIOException);
         } catch (IOException ioException) {
-            throw new OfficeException("could not store document: " + outputFile.getName(), ioException);
+            throw new OfficeException("could not store document: " + name, ioException);
         }
     }
 }
@@ -0,0 +1,192 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.artofsolving.jodconverter.filter.OfficeDocumentFilter;
+
+/**
+ * Disk cache of conversion results, bounded in size, that evicts the least recently used entries first.
+ * <p>
+ * Entries are keyed by a {@link ConversionDigest} of the input document content, the output format, the load
+ * properties and the filter chain, so the same document converted the same way is only converted once, whatever its
+ * file name.
+ * <p>
+ * The cache directory should be dedicated to the cache: entries found there on creation are indexed, and evicted
+ * entries are deleted.
+ */
+public class ConversionCache
+{
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /** Entry sizes, least recently used first. */
+    private final Map<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    private long size;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * @param directory where to store the converted documents; created if needed
+     * @param maxSize the maximum total size of the cached documents, in bytes
+     * @throws IOException if the directory can't be created
+     */
+    public ConversionCache(File directory, long maxSize) throws IOException
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        FileUtils.forceMkdir(directory);
+        loadEntries();
+    }
+
+    private void loadEntries()
+    {
+        File[] files = this.directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // oldest first, so that they are evicted first
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(File file1, File file2)
+            {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                FileUtils.deleteQuietly(file);
+            } else if (file.isFile()) {
+                this.entries.put(file.getName(), file.length());
+                this.size += file.length();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Computes the cache key of a conversion.
+     * 
+     * @param inputFile the document to convert
+     * @param outputFormat the output format
+     * @param loadProperties the effective load properties
+     * @param filters the filters applied to the document before storing it
+     * @return the cache key
+     * @throws IOException if the input file can't be read
+     */
+    public String getKey(File inputFile, DocumentFormat outputFormat, Map<String, ?> loadProperties,
+        List<? extends OfficeDocumentFilter> filters) throws IOException
+    {
+        return ConversionDigest.compute(inputFile, outputFormat, loadProperties, filters);
+    }
+
+    /**
+     * Copies the cached document to the given file.
+     * 
+     * @param key the cache key
+     * @param outputFile the file to write
+     * @return <code>true</code> if the document was cached, <code>false</code> otherwise
+     * @throws IOException if the cached document can't be copied
+     */
+    public boolean get(String key, File outputFile) throws IOException
+    {
+        File cachedFile = new File(this.directory, key);
+        synchronized (this) {
+            if (this.entries.get(key) == null) {
+                return false;
+            }
+        }
+        try {
+            FileUtils.copyFile(cachedFile, outputFile, false);
+        } catch (IOException ioException) {
+            if (!cachedFile.exists()) {
+                // evicted in the meantime
+                return false;
+            }
+            throw ioException;
+        }
+        return true;
+    }
+
+    /**
+     * Stores a copy of a converted document, evicting the least recently used documents if the cache becomes too
+     * large. Documents larger than the cache itself are not stored.
+     * 
+     * @param key the cache key
+     * @param outputFile the converted document
+     * @throws IOException if the document can't be copied
+     */
+    public void put(String key, File outputFile) throws IOException
+    {
+        long length = outputFile.length();
+        if (length > this.maxSize) {
+            return;
+        }
+        File tempFile = File.createTempFile(key, TEMP_SUFFIX, this.directory);
+        try {
+            FileUtils.copyFile(outputFile, tempFile, false);
+            synchronized (this) {
+                File cachedFile = new File(this.directory, key);
+                Long previousLength = this.entries.remove(key);
+                if (previousLength != null) {
+                    this.size -= previousLength;
+                    cachedFile.delete();
+                }
+                if (!tempFile.renameTo(cachedFile)) {
+                    throw new IOException("could not rename " + tempFile + " to " + cachedFile);
+                }
+                this.entries.put(key, length);
+                this.size += length;
+                evict();
+            }
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    private synchronized void evict()
+    {
+        Iterator<Map.Entry<String, Long>> iterator = this.entries.entrySet().iterator();
+        while (this.size > this.maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            this.size -= entry.getValue();
+            if (!new File(this.directory, entry.getKey()).delete()) {
+                this.logger.warning("could not delete evicted cache entry " + entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return the total size of the cached documents, in bytes
+     */
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+}
@@ -0,0 +1,112 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.artofsolving.jodconverter.filter.OfficeDocumentFilter;
+
+/**
+ * Identifies a conversion by the content of the input document rather than its name: two conversions with the same
+ * digest produce the same output.
+ */
+public final class ConversionDigest
+{
+    private ConversionDigest()
+    {
+        // utility class
+    }
+
+    /**
+     * @param inputFile the document to convert
+     * @param outputFormat the output format
+     * @param loadProperties the effective load properties
+     * @param filters the filters applied to the document before storing it
+     * @return the hex-encoded SHA-256 digest of the conversion
+     * @throws IOException if the input file can't be read
+     */
+    public static String compute(File inputFile, DocumentFormat outputFormat, Map<String, ? > loadProperties,
+        List<? extends OfficeDocumentFilter> filters) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        InputStream inputStream = new FileInputStream(inputFile);
+        try {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+        StringBuilder conversion = new StringBuilder();
+        conversion.append(outputFormat.getExtension()).append('|').append(outputFormat.getMediaType()).append('|');
+        appendValue(conversion, outputFormat.getStorePropertiesByFamily());
+        conversion.append('|');
+        appendValue(conversion, loadProperties);
+        for (OfficeDocumentFilter filter : filters) {
+            conversion.append('|').append(filter.getClass().getName());
+        }
+        digest.update(conversion.toString().getBytes("UTF-8"));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Appends a value with map entries in a stable order, so that equal properties give equal digests.
+     */
+    private static void appendValue(StringBuilder builder, Object value)
+    {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<String, Object>();
+            for (Map.Entry< ? , ? > entry : ((Map< ? , ? >) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            builder.append('{');
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                builder.append(entry.getKey()).append('=');
+                appendValue(builder, entry.getValue());
+                builder.append(';');
+            }
+            builder.append('}');
+        } else if (value instanceof Object[]) {
+            builder.append(Arrays.deepToString((Object[]) value));
+        } else {
+            builder.append(value);
+        }
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    }
+}
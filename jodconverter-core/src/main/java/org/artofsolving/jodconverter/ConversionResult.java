@@ -0,0 +1,51 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import java.io.File;
+
+import org.artofsolving.jodconverter.document.DocumentFormat;
+
+/**
+ * The outcome of a successful conversion.
+ */
+public class ConversionResult
+{
+    private final File inputFile;
+
+    private final File outputFile;
+
+    private final DocumentFormat outputFormat;
+
+    public ConversionResult(File inputFile, File outputFile, DocumentFormat outputFormat)
+    {
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.outputFormat = outputFormat;
+    }
+
+    public File getInputFile()
+    {
+        return this.inputFile;
+    }
+
+    public File getOutputFile()
+    {
+        return this.outputFile;
+    }
+
+    public DocumentFormat getOutputFormat()
+    {
+        return this.outputFormat;
+    }
+}
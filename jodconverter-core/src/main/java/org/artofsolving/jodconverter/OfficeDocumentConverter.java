@@ -13,18 +13,42 @@
 package org.artofsolving.jodconverter;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.artofsolving.jodconverter.document.DefaultDocumentFormatRegistry;
 import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.artofsolving.jodconverter.document.DocumentFormatSniffer;
+import org.artofsolving.jodconverter.document.InvalidDocumentException;
+import org.artofsolving.jodconverter.document.PreflightChecker;
 import org.artofsolving.jodconverter.document.DocumentFormatRegistry;
 import org.artofsolving.jodconverter.filter.ImageEmbedderFilter;
+import org.artofsolving.jodconverter.filter.OfficeDocumentFilter;
 import org.artofsolving.jodconverter.filter.RefreshFilter;
+import org.artofsolving.jodconverter.office.BatchOfficeTask;
 import org.artofsolving.jodconverter.office.OfficeException;
 import org.artofsolving.jodconverter.office.OfficeManager;
+import org.artofsolving.jodconverter.office.OfficeTaskPriority;
+import org.artofsolving.jodconverter.office.OfficeUtils;
 
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.document.UpdateDocMode;
 
 public class OfficeDocumentConverter
@@ -35,6 +59,38 @@
 
     private Map<String, ?> defaultLoadProperties = createDefaultLoadProperties();
 
+    /** The default load properties converted once, since they are used by every conversion. */
+    private PropertyValue[] defaultUnoLoadProperties = OfficeUtils.toUnoProperties(this.defaultLoadProperties);
+
+    private OfficeTaskPriority priority = OfficeTaskPriority.NORMAL;
+
+    /** Shared by all conversions; the default filters keep no per-document state. */
+    private List<OfficeDocumentFilter> filters =
+        Arrays.<OfficeDocumentFilter> asList(new ImageEmbedderFilter(), new RefreshFilter());
+
+    /** The filters to use instead of {@link #filters}, by output format extension. */
+    private final Map<String, List<OfficeDocumentFilter>> filtersByOutputFormat =
+        new HashMap<String, List<OfficeDocumentFilter>>();
+
+    private ConversionCache conversionCache;
+
+    private DocumentFormatSniffer formatSniffer;
+
+    private PreflightChecker preflightChecker;
+
+    private boolean coalesceConversions;
+
+    private long executionTimeout; // 0: the timeout of the office manager
+
+    private long executionTimeoutPerMegabyte;
+
+    private long conversionTimeout; // 0: no deadline
+
+    /** The conversions in progress when coalescing, by {@link ConversionDigest}. */
+    private final Map<String, Flight> flights = new HashMap<String, Flight>();
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
     public OfficeDocumentConverter(OfficeManager officeManager)
     {
         this(officeManager, new DefaultDocumentFormatRegistry());
@@ -58,6 +114,126 @@ private Map<String, Object> createDefaultLoadProperties()
     public void setDefaultLoadProperties(Map<String, ?> defaultLoadProperties)
     {
         this.defaultLoadProperties = defaultLoadProperties;
+        this.defaultUnoLoadProperties =
+            defaultLoadProperties != null ? OfficeUtils.toUnoProperties(defaultLoadProperties) : new PropertyValue[0];
+    }
+
+    /**
+     * Sets the priority of the conversions submitted by this converter, e.g. {@link OfficeTaskPriority#LOW} for a
+     * converter used for bulk jobs and {@link OfficeTaskPriority#HIGH} for one serving interactive requests.
+     * 
+     * @param priority the conversion priority
+     */
+    public void setPriority(OfficeTaskPriority priority)
+    {
+        this.priority = priority;
+    }
+
+    /**
+     * Gives each conversion a timeout that grows with the {@link StandardConversionTask#getEstimatedCost() estimated
+     * cost} of the input document, instead of the single <code>taskExecutionTimeout</code> of the office manager.
+     * 
+     * @param executionTimeout the timeout of a conversion of an empty document, in milliseconds, or 0 to use the
+     *            timeout of the office manager
+     * @param executionTimeoutPerMegabyte the time added for each megabyte of estimated cost, in milliseconds
+     */
+    public void setExecutionTimeout(long executionTimeout, long executionTimeoutPerMegabyte)
+    {
+        this.executionTimeout = executionTimeout;
+        this.executionTimeoutPerMegabyte = executionTimeoutPerMegabyte;
+    }
+
+    /**
+     * Sets the total time a conversion may take, counted from the convert call and including the time spent waiting
+     * for an office process. A conversion that can't be completed in time fails with an {@link OfficeException} as
+     * soon as its deadline passes, without holding an office process any longer. For a batch, the timeout applies to
+     * the whole batch.
+     * 
+     * @param conversionTimeout the conversion timeout in milliseconds, or 0 for no timeout
+     */
+    public void setConversionTimeout(long conversionTimeout)
+    {
+        this.conversionTimeout = conversionTimeout;
+    }
+
+    /**
+     * Sets the filters applied to the documents before they are stored; by default images are embedded and fields
+     * and indexes refreshed. Each filter is skipped for documents it doesn't apply to, see
+     * {@link OfficeDocumentFilter#isApplicable}. The filters are shared by concurrent conversions and must be
+     * thread-safe.
+     * 
+     * @param filters the filters, in the order they are applied
+     */
+    public void setFilters(List<OfficeDocumentFilter> filters)
+    {
+        this.filters = new ArrayList<OfficeDocumentFilter>(filters);
+    }
+
+    /**
+     * Sets the filters applied when converting to the given format, instead of the ones set with
+     * {@link #setFilters(List)}. E.g. an empty list skips all filters for plain text output.
+     * 
+     * @param outputFormat the output format
+     * @param filters the filters, in the order they are applied, or <code>null</code> to use the default filters
+     */
+    public void setFilters(DocumentFormat outputFormat, List<OfficeDocumentFilter> filters)
+    {
+        synchronized (this.filtersByOutputFormat) {
+            if (filters == null) {
+                this.filtersByOutputFormat.remove(outputFormat.getExtension());
+            } else {
+                this.filtersByOutputFormat.put(outputFormat.getExtension(),
+                    new ArrayList<OfficeDocumentFilter>(filters));
+            }
+        }
+    }
+
+    /**
+     * Enables the detection of the input format from the content of the input files rather than their extension. The
+     * detected format is also passed to office along with its import filter, which spares office its own, slower,
+     * type detection. Files whose format isn't recognized are still handled according to their extension.
+     * 
+     * @param sniffInputFormat whether to detect the input format from the file content
+     */
+    public void setSniffInputFormat(boolean sniffInputFormat)
+    {
+        this.formatSniffer = sniffInputFormat ? new DocumentFormatSniffer(this.formatRegistry) : null;
+    }
+
+    /**
+     * Sets the checks applied to input files before their conversion is submitted: documents that fail them are
+     * rejected with an {@link InvalidDocumentException} without occupying an office process.
+     * 
+     * @param preflightChecker the checker, or <code>null</code> to submit all documents to office
+     */
+    public void setPreflightChecker(PreflightChecker preflightChecker)
+    {
+        this.preflightChecker = preflightChecker;
+    }
+
+    /**
+     * Sets a cache of conversion results: file conversions of a document that has already been converted the same way
+     * are then served from the cache without using an office process.
+     * 
+     * @param conversionCache the cache, or <code>null</code> to disable caching
+     */
+    public void setConversionCache(ConversionCache conversionCache)
+    {
+        this.conversionCache = conversionCache;
+    }
+
+    /**
+     * Enables the coalescing of identical file conversions: while a document is being converted, other requests to
+     * convert the same content with the same format and properties wait for that conversion and get a copy of its
+     * result, instead of using another office process.
+     * <p>
+     * Disabled by default, since it requires computing a digest of each input document.
+     * 
+     * @param coalesceConversions whether to coalesce identical conversions
+     */
+    public void setCoalesceConversions(boolean coalesceConversions)
+    {
+        this.coalesceConversions = coalesceConversions;
     }
 
     public DocumentFormatRegistry getFormatRegistry()
@@ -67,20 +243,392 @@ public DocumentFormatRegistry getFormatRegistry()
 
     public void convert(File inputFile, File outputFile) throws OfficeException
     {
-        String outputExtension = FilenameUtils.getExtension(outputFile.getName());
-        DocumentFormat outputFormat = this.formatRegistry.getFormatByExtension(outputExtension);
-        convert(inputFile, outputFile, outputFormat);
+        convert(inputFile, outputFile, getOutputFormat(outputFile));
     }
 
     public void convert(File inputFile, File outputFile, DocumentFormat outputFormat) throws OfficeException
     {
-        String inputExtension = FilenameUtils.getExtension(inputFile.getName());
-        DocumentFormat inputFormat = this.formatRegistry.getFormatByExtension(inputExtension);
-        StandardConversionTask conversionTask = new StandardConversionTask(inputFile, outputFile, outputFormat);
-        conversionTask.setDefaultLoadProperties(this.defaultLoadProperties);
+        preflight(inputFile);
+        StandardConversionTask conversionTask = createConversionTask(inputFile, outputFile, outputFormat);
+        String digest = getDigest(conversionTask, inputFile, outputFormat);
+        if (isCached(digest, outputFile)) {
+            return;
+        }
+        if (this.coalesceConversions && digest != null) {
+            if (!convertOnce(digest, conversionTask, outputFile)) {
+                // another caller did the conversion and caches it
+                return;
+            }
+        } else {
+            this.officeManager.execute(conversionTask);
+        }
+        cache(digest, outputFile);
+    }
+
+    /**
+     * Converts a document to several formats at once: the document is loaded and filtered only once, then stored to
+     * each output file, which is much faster than separate conversions for large documents.
+     * <p>
+     * These conversions don't use the conversion cache, and use the filters set with {@link #setFilters(List)}
+     * whatever the output formats.
+     * 
+     * @param inputFile the file to convert
+     * @param outputFormats the output formats, by output file
+     * @throws OfficeException if the conversion fails
+     */
+    public void convert(File inputFile, Map<File, DocumentFormat> outputFormats) throws OfficeException
+    {
+        preflight(inputFile);
+        StandardConversionTask conversionTask = new StandardConversionTask(inputFile, outputFormats);
+        configureInputFormat(conversionTask, inputFile);
+        configureConversionTask(conversionTask, null);
+        this.officeManager.execute(conversionTask);
+    }
+
+    /**
+     * Converts many documents as a single batch, run one after the other on the same office process. Much faster than
+     * separate conversions for small documents, since the overhead of each task is then significant.
+     * 
+     * @param files the output files, by input file; the extension of each output file determines its format
+     * @return the failures by input file, empty if all the conversions succeeded
+     * @throws OfficeException if the batch can't be executed
+     */
+    public Map<File, OfficeException> convertBatch(Map<File, File> files) throws OfficeException
+    {
+        return convertBatch(files, null);
+    }
+
+    /**
+     * Converts many documents to the same format as a single batch.
+     * 
+     * @param files the output files, by input file
+     * @param outputFormat the output format, or <code>null</code> to use the extension of each output file
+     * @return the failures by input file, empty if all the conversions succeeded
+     * @throws OfficeException if the batch can't be executed
+     * @see #convertBatch(Map)
+     */
+    public Map<File, OfficeException> convertBatch(Map<File, File> files, DocumentFormat outputFormat)
+        throws OfficeException
+    {
+        Map<File, OfficeException> failures = new LinkedHashMap<File, OfficeException>();
+        List<File> inputFiles = new ArrayList<File>();
+        List<StandardConversionTask> conversionTasks = new ArrayList<StandardConversionTask>();
+        for (Map.Entry<File, File> entry : files.entrySet()) {
+            try {
+                preflight(entry.getKey());
+            } catch (InvalidDocumentException invalidDocumentException) {
+                failures.put(entry.getKey(), invalidDocumentException);
+                continue;
+            }
+            File outputFile = entry.getValue();
+            DocumentFormat format = outputFormat != null ? outputFormat : getOutputFormat(outputFile);
+            inputFiles.add(entry.getKey());
+            conversionTasks.add(createConversionTask(entry.getKey(), outputFile, format));
+        }
+        if (conversionTasks.isEmpty()) {
+            return failures;
+        }
+        BatchOfficeTask batch = new BatchOfficeTask(conversionTasks);
+        this.officeManager.execute(batch);
+        for (int i = 0; i < inputFiles.size(); i++) {
+            if (batch.getFailure(i) != null) {
+                failures.put(inputFiles.get(i), batch.getFailure(i));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Converts a document read from a stream and writes the result to another stream, without creating temporary
+     * files. The streams are not closed. The input is read into memory before the conversion is submitted, so that a
+     * slow stream doesn't hold an office process.
+     * 
+     * @param inputStream the document to convert
+     * @param inputFormat the format of the input document, or <code>null</code> to let office detect it
+     * @param outputStream where to write the converted document
+     * @param outputFormat the output format
+     * @throws OfficeException if the conversion fails
+     */
+    public void convert(InputStream inputStream, DocumentFormat inputFormat, OutputStream outputStream,
+        DocumentFormat outputFormat) throws OfficeException
+    {
+        byte[] inputBytes;
+        try {
+            inputBytes = IOUtils.toByteArray(inputStream);
+        } catch (IOException ioException) {
+            throw new OfficeException("could not read input stream", ioException);
+        }
+        StandardConversionTask conversionTask = new StandardConversionTask(inputBytes, outputStream, outputFormat);
         conversionTask.setInputFormat(inputFormat);
-        conversionTask.getFilters().add(new ImageEmbedderFilter());
-        conversionTask.getFilters().add(new RefreshFilter());
+        configureConversionTask(conversionTask, outputFormat);
         this.officeManager.execute(conversionTask);
     }
+
+    /**
+     * Converts the given file without blocking the calling thread.
+     * 
+     * @param inputFile the file to convert
+     * @param outputFile the file to write; its extension determines the output format
+     * @return a future that completes once the conversion is done
+     * @throws OfficeException if the conversion can't be scheduled, e.g. the input file fails the preflight checks
+     * @see OfficeManager#submit(org.artofsolving.jodconverter.office.OfficeTask)
+     */
+    public CompletableFuture<ConversionResult> convertAsync(File inputFile, File outputFile) throws OfficeException
+    {
+        return convertAsync(inputFile, outputFile, getOutputFormat(outputFile));
+    }
+
+    /**
+     * Converts the given file to the specified format without blocking the calling thread.
+     * 
+     * @param inputFile the file to convert
+     * @param outputFile the file to write
+     * @param outputFormat the output format
+     * @return a future that completes once the conversion is done
+     * @throws OfficeException if the conversion can't be scheduled, e.g. the input file fails the preflight checks
+     * @see OfficeManager#submit(org.artofsolving.jodconverter.office.OfficeTask)
+     */
+    public CompletableFuture<ConversionResult> convertAsync(File inputFile, File outputFile,
+        DocumentFormat outputFormat) throws OfficeException
+    {
+        preflight(inputFile);
+        StandardConversionTask conversionTask = createConversionTask(inputFile, outputFile, outputFormat);
+        final ConversionResult result = new ConversionResult(inputFile, outputFile, outputFormat);
+        final String cacheKey =
+            this.conversionCache != null ? getDigest(conversionTask, inputFile, outputFormat) : null;
+        if (isCached(cacheKey, outputFile)) {
+            return CompletableFuture.completedFuture(result);
+        }
+        return this.officeManager.submit(conversionTask).thenApply(new Function<Void, ConversionResult>()
+        {
+            public ConversionResult apply(Void value)
+            {
+                cache(cacheKey, result.getOutputFile());
+                return result;
+            }
+        });
+    }
+
+    /**
+     * @return the digest of the conversion, or <code>null</code> if neither caching nor coalescing is enabled, or if
+     *         the digest can't be computed
+     */
+    private String getDigest(StandardConversionTask conversionTask, File inputFile, DocumentFormat outputFormat)
+    {
+        if ((this.conversionCache == null && !this.coalesceConversions) || !inputFile.isFile()) {
+            return null;
+        }
+        try {
+            return ConversionDigest.compute(inputFile, outputFormat, conversionTask.getLoadProperties(inputFile),
+                conversionTask.getFilters());
+        } catch (IOException ioException) {
+            this.logger.log(Level.WARNING, "could not compute the conversion digest", ioException);
+            return null;
+        }
+    }
+
+    /**
+     * Runs the conversion task unless the same conversion is already in progress, in which case its result is copied.
+     * The first caller converts straight to its output file; a copy is only made when other callers are waiting for
+     * the result.
+     * 
+     * @return <code>true</code> if this call did the conversion, <code>false</code> if it reused another one
+     */
+    private boolean convertOnce(String digest, StandardConversionTask conversionTask, File outputFile)
+        throws OfficeException
+    {
+        Flight flight;
+        boolean leader;
+        synchronized (this.flights) {
+            flight = this.flights.get(digest);
+            leader = flight == null;
+            if (leader) {
+                flight = new Flight();
+                this.flights.put(digest, flight);
+            }
+            flight.users++;
+        }
+        try {
+            if (leader) {
+                lead(digest, flight, conversionTask, outputFile);
+                return true;
+            }
+            follow(flight, conversionTask, outputFile);
+            return false;
+        } finally {
+            synchronized (this.flights) {
+                if (--flight.users == 0 && flight.outputFile != null) {
+                    FileUtils.deleteQuietly(flight.outputFile);
+                }
+            }
+        }
+    }
+
+    private void lead(String digest, Flight flight, StandardConversionTask conversionTask, File outputFile)
+        throws OfficeException
+    {
+        try {
+            this.officeManager.execute(conversionTask);
+        } catch (RuntimeException exception) {
+            synchronized (this.flights) {
+                this.flights.remove(digest);
+            }
+            flight.result.completeExceptionally(exception);
+            throw exception;
+        }
+        int followers;
+        synchronized (this.flights) {
+            // no one can join once the flight is removed
+            this.flights.remove(digest);
+            followers = flight.users - 1;
+        }
+        if (followers == 0) {
+            flight.result.complete(outputFile);
+            return;
+        }
+        // the followers copy from a file of their own, since the caller may move or delete its output file
+        try {
+            File copy = File.createTempFile("jodconverter_", "." + FilenameUtils.getExtension(outputFile.getName()));
+            flight.outputFile = copy;
+            FileUtils.copyFile(outputFile, copy);
+            flight.result.complete(copy);
+        } catch (IOException ioException) {
+            flight.result.completeExceptionally(new OfficeException("could not copy the converted document",
+                ioException));
+        }
+    }
+
+    /**
+     * Waits for the conversion of the flight, at most until the deadline of the given task, and copies its result.
+     */
+    private void follow(Flight flight, StandardConversionTask conversionTask, File outputFile) throws OfficeException
+    {
+        File convertedFile;
+        try {
+            long remainingTime = OfficeUtils.getRemainingTime(conversionTask);
+            if (remainingTime == Long.MAX_VALUE) {
+                convertedFile = flight.result.get();
+            } else {
+                convertedFile = flight.result.get(Math.max(0, remainingTime), TimeUnit.MILLISECONDS);
+            }
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof OfficeException) {
+                throw (OfficeException) executionException.getCause();
+            }
+            throw new OfficeException("conversion failed", executionException.getCause());
+        } catch (TimeoutException timeoutException) {
+            throw new OfficeException("task deadline expired while waiting for the same conversion",
+                timeoutException);
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted while waiting for the same conversion", interruptedException);
+        }
+        try {
+            FileUtils.copyFile(convertedFile, outputFile);
+        } catch (IOException ioException) {
+            throw new OfficeException("could not copy the converted document", ioException);
+        }
+    }
+
+    private void preflight(File inputFile) throws InvalidDocumentException
+    {
+        if (this.preflightChecker != null) {
+            this.preflightChecker.check(inputFile);
+        }
+    }
+
+    private boolean isCached(String cacheKey, File outputFile)
+    {
+        if (this.conversionCache == null || cacheKey == null) {
+            return false;
+        }
+        try {
+            return this.conversionCache.get(cacheKey, outputFile);
+        } catch (IOException ioException) {
+            this.logger.log(Level.WARNING, "could not read from the conversion cache", ioException);
+            return false;
+        }
+    }
+
+    private void cache(String cacheKey, File outputFile)
+    {
+        if (this.conversionCache == null || cacheKey == null) {
+            return;
+        }
+        try {
+            this.conversionCache.put(cacheKey, outputFile);
+        } catch (IOException ioException) {
+            this.logger.log(Level.WARNING, "could not write to the conversion cache", ioException);
+        }
+    }
+
+    private DocumentFormat getOutputFormat(File outputFile)
+    {
+        String outputExtension = FilenameUtils.getExtension(outputFile.getName());
+        return this.formatRegistry.getFormatByExtension(outputExtension);
+    }
+
+    private StandardConversionTask createConversionTask(File inputFile, File outputFile, DocumentFormat outputFormat)
+    {
+        StandardConversionTask conversionTask = new StandardConversionTask(inputFile, outputFile, outputFormat);
+        configureInputFormat(conversionTask, inputFile);
+        configureConversionTask(conversionTask, outputFormat);
+        return conversionTask;
+    }
+
+    /**
+     * Sets the input format of the task, detected from the file content when enabled or else from the file extension.
+     */
+    private void configureInputFormat(StandardConversionTask conversionTask, File inputFile)
+    {
+        if (this.formatSniffer != null && inputFile.isFile()) {
+            try {
+                DocumentFormatSniffer.Detection detection = this.formatSniffer.detect(inputFile);
+                if (detection != null) {
+                    conversionTask.setInputFormat(detection.getFormat());
+                    conversionTask.setInputFilterName(detection.getFilterName());
+                    return;
+                }
+            } catch (IOException ioException) {
+                this.logger.log(Level.WARNING, "could not detect the format of " + inputFile.getName(), ioException);
+            }
+        }
+        String inputExtension = FilenameUtils.getExtension(inputFile.getName());
+        conversionTask.setInputFormat(this.formatRegistry.getFormatByExtension(inputExtension));
+    }
+
+    /**
+     * @param outputFormat the output format, or <code>null</code> to use the default filters
+     */
+    private void configureConversionTask(StandardConversionTask conversionTask, DocumentFormat outputFormat)
+    {
+        conversionTask.setDefaultLoadProperties(this.defaultLoadProperties, this.defaultUnoLoadProperties);
+        conversionTask.setPriority(this.priority);
+        if (this.executionTimeout > 0) {
+            conversionTask.setExecutionTimeout(this.executionTimeout + conversionTask.getEstimatedCost()
+                * this.executionTimeoutPerMegabyte / 1024);
+        }
+        if (this.conversionTimeout > 0) {
+            conversionTask.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.conversionTimeout));
+        }
+        List<OfficeDocumentFilter> formatFilters = null;
+        if (outputFormat != null) {
+            synchronized (this.filtersByOutputFormat) {
+                formatFilters = this.filtersByOutputFormat.get(outputFormat.getExtension());
+            }
+        }
+        conversionTask.getFilters().addAll(formatFilters != null ? formatFilters : this.filters);
+    }
+
+    /**
+     * A conversion in progress and the number of callers waiting for its result.
+     */
+    private static class Flight
+    {
+        private final CompletableFuture<File> result = new CompletableFuture<File>();
+
+        /** A copy of the result made for the callers waiting for it, deleted by the last one. */
+        private File outputFile;
+
+        private int users;
+    }
 }
@@ -13,8 +13,12 @@
 package org.artofsolving.jodconverter;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,28 +27,72 @@
 import org.artofsolving.jodconverter.filter.OfficeDocumentFilter;
 import org.artofsolving.jodconverter.office.OfficeContext;
 import org.artofsolving.jodconverter.office.OfficeException;
+import org.artofsolving.jodconverter.office.OfficeUtils;
 
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.lang.XComponent;
 
 public class StandardConversionTask extends AbstractConversionTask
 {
-    private final DocumentFormat outputFormat;
+    /** Roughly how much a zipped XML document grows once loaded, compared to a flat one of the same size. */
+    private static final int PACKAGE_COST_FACTOR = 4;
+
+    /** The output formats by output file; the key is <code>null</code> when converting to a stream. */
+    private final Map<File, DocumentFormat> outputFormats;
 
     private final List<OfficeDocumentFilter> filters = new ArrayList<OfficeDocumentFilter>();
 
     private Map<String, ?> defaultLoadProperties;
 
+    private PropertyValue[] defaultUnoLoadProperties;
+
     private DocumentFormat inputFormat;
 
+    private String inputFilterName;
+
     public StandardConversionTask(File inputFile, File outputFile, DocumentFormat outputFormat)
     {
         super(inputFile, outputFile);
-        this.outputFormat = outputFormat;
+        this.outputFormats = Collections.singletonMap(outputFile, outputFormat);
+    }
+
+    /**
+     * Creates a task that loads and filters the document once, then stores it in each of the given formats.
+     * 
+     * @param inputFile the document to convert
+     * @param outputFormats the output formats, by output file
+     */
+    public StandardConversionTask(File inputFile, Map<File, DocumentFormat> outputFormats)
+    {
+        super(inputFile, outputFormats.keySet());
+        this.outputFormats = new LinkedHashMap<File, DocumentFormat>(outputFormats);
+    }
+
+    public StandardConversionTask(InputStream inputStream, OutputStream outputStream, DocumentFormat outputFormat)
+    {
+        super(inputStream, outputStream);
+        this.outputFormats = Collections.singletonMap(null, outputFormat);
+    }
+
+    public StandardConversionTask(byte[] inputBytes, OutputStream outputStream, DocumentFormat outputFormat)
+    {
+        super(inputBytes, outputStream);
+        this.outputFormats = Collections.singletonMap(null, outputFormat);
     }
 
     public void setDefaultLoadProperties(Map<String, ?> defaultLoadProperties)
     {
         this.defaultLoadProperties = defaultLoadProperties;
+        this.defaultUnoLoadProperties = null;
+    }
+
+    /**
+     * Sets the default load properties along with their precomputed UNO form, shared between conversions.
+     */
+    void setDefaultLoadProperties(Map<String, ?> defaultLoadProperties, PropertyValue[] defaultUnoLoadProperties)
+    {
+        this.defaultLoadProperties = defaultLoadProperties;
+        this.defaultUnoLoadProperties = defaultUnoLoadProperties;
     }
 
     public void setInputFormat(DocumentFormat inputFormat)
@@ -52,6 +100,37 @@ public void setInputFormat(DocumentFormat inputFormat)
         this.inputFormat = inputFormat;
     }
 
+    /**
+     * Sets the office import filter to load the document with, so that office doesn't detect the type of the document
+     * again.
+     * 
+     * @param inputFilterName the name of the import filter, or <code>null</code> to let office choose
+     */
+    public void setInputFilterName(String inputFilterName)
+    {
+        this.inputFilterName = inputFilterName;
+    }
+
+    /**
+     * Weighs the size of ODF, OpenOffice.org 1.0 and OOXML documents, which are compressed, against the size of the
+     * other formats.
+     */
+    @Override
+    protected long estimateCost(File inputFile)
+    {
+        long cost = super.estimateCost(inputFile);
+        return isPackage(this.inputFormat) ? cost * PACKAGE_COST_FACTOR : cost;
+    }
+
+    private static boolean isPackage(DocumentFormat format)
+    {
+        String mediaType = format != null ? format.getMediaType() : null;
+        return mediaType != null
+            && (mediaType.startsWith("application/vnd.oasis.opendocument.")
+                || mediaType.startsWith("application/vnd.sun.xml.")
+                || mediaType.startsWith("application/vnd.openxmlformats-officedocument."));
+    }
+
     public List<OfficeDocumentFilter> getFilters()
     {
         return this.filters;
@@ -61,7 +140,9 @@ public List<OfficeDocumentFilter> getFilters()
     protected void modifyDocument(XComponent document, OfficeContext context) throws OfficeException
     {
         for (OfficeDocumentFilter filter : this.filters) {
-            filter.filter(document, context);
+            if (filter.isApplicable(document, context)) {
+                filter.filter(document, context);
+            }
         }
     }
 
@@ -75,13 +156,42 @@ protected void modifyDocument(XComponent document, OfficeContext context) throws
         if (this.inputFormat != null && this.inputFormat.getLoadProperties() != null) {
             loadProperties.putAll(this.inputFormat.getLoadProperties());
         }
+        if (this.inputFilterName != null) {
+            loadProperties.put("FilterName", this.inputFilterName);
+        }
+        return loadProperties;
+    }
+
+    @Override
+    protected PropertyValue[] getUnoLoadProperties(File inputFile)
+    {
+        PropertyValue[] defaultProperties = this.defaultUnoLoadProperties;
+        if (defaultProperties == null) {
+            defaultProperties = this.defaultLoadProperties != null
+                ? OfficeUtils.toUnoProperties(this.defaultLoadProperties) : new PropertyValue[0];
+        }
+        PropertyValue[] loadProperties = defaultProperties;
+        if (this.inputFormat != null) {
+            loadProperties = OfficeUtils.merge(loadProperties, this.inputFormat.getUnoLoadProperties());
+        }
+        if (this.inputFilterName != null) {
+            loadProperties =
+                OfficeUtils.merge(loadProperties, OfficeUtils.property("FilterName", this.inputFilterName));
+        }
         return loadProperties;
     }
 
+    @Override
+    protected PropertyValue[] getUnoStoreProperties(File outputFile, XComponent document)
+    {
+        DocumentFamily family = OfficeDocumentUtils.getDocumentFamily(document);
+        return this.outputFormats.get(outputFile).getUnoStoreProperties(family);
+    }
+
     @Override
     protected Map<String, ?> getStoreProperties(File outputFile, XComponent document)
     {
         DocumentFamily family = OfficeDocumentUtils.getDocumentFamily(document);
-        return this.outputFormat.getStoreProperties(family);
+        return this.outputFormats.get(outputFile).getStoreProperties(family);
     }
 }
@@ -14,6 +14,11 @@
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.artofsolving.jodconverter.office.OfficeUtils;
+
+import com.sun.star.beans.PropertyValue;
 
 public class DocumentFormat
 {
@@ -29,6 +34,13 @@
 
     private Map<DocumentFamily, Map<String, ? >> storePropertiesByFamily;
 
+    /** The load properties converted to UNO properties on first use. */
+    private volatile PropertyValue[] unoLoadProperties;
+
+    /** The store properties converted to UNO properties on first use, by family. */
+    private final Map<DocumentFamily, PropertyValue[]> unoStorePropertiesByFamily =
+        new ConcurrentHashMap<DocumentFamily, PropertyValue[]>();
+
     public DocumentFormat()
     {
         // default
@@ -89,6 +101,7 @@ public void setInputFamily(DocumentFamily documentFamily)
     public void setLoadProperties(Map<String, ? > loadProperties)
     {
         this.loadProperties = loadProperties;
+        this.unoLoadProperties = null;
     }
 
     public Map<DocumentFamily, Map<String, ? >> getStorePropertiesByFamily()
@@ -99,6 +112,7 @@ public void setLoadProperties(Map<String, ? > loadProperties)
     public void setStorePropertiesByFamily(Map<DocumentFamily, Map<String, ? >> storePropertiesByFamily)
     {
         this.storePropertiesByFamily = storePropertiesByFamily;
+        this.unoStorePropertiesByFamily.clear();
     }
 
     public void setStoreProperties(DocumentFamily family, Map<String, ? > storeProperties)
@@ -107,6 +121,7 @@ public void setStoreProperties(DocumentFamily family, Map<String, ? > storePrope
             this.storePropertiesByFamily = new HashMap<DocumentFamily, Map<String, ? >>();
         }
         this.storePropertiesByFamily.put(family, storeProperties);
+        this.unoStorePropertiesByFamily.remove(family);
     }
 
     public Map<String, ? > getStoreProperties(DocumentFamily family)
@@ -116,4 +131,42 @@ public void setStoreProperties(DocumentFamily family, Map<String, ? > storePrope
         }
         return this.storePropertiesByFamily.get(family);
     }
+
+    /**
+     * Returns the load properties as UNO properties, converted only once. The load properties should therefore be
+     * changed with {@link #setLoadProperties(Map)} rather than modified in place.
+     * 
+     * @return the load properties, shared between conversions and not to be modified
+     */
+    public PropertyValue[] getUnoLoadProperties()
+    {
+        PropertyValue[] properties = this.unoLoadProperties;
+        if (properties == null) {
+            properties =
+                this.loadProperties != null ? OfficeUtils.toUnoProperties(this.loadProperties) : new PropertyValue[0];
+            this.unoLoadProperties = properties;
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the store properties for the given family as UNO properties, converted only once.
+     * 
+     * @param family the family of the document to store
+     * @return the store properties, shared between conversions and not to be modified, or <code>null</code> if the
+     *         format can't be used to store documents of this family
+     */
+    public PropertyValue[] getUnoStoreProperties(DocumentFamily family)
+    {
+        PropertyValue[] properties = this.unoStorePropertiesByFamily.get(family);
+        if (properties == null) {
+            Map<String, ? > storeProperties = getStoreProperties(family);
+            if (storeProperties == null) {
+                return null;
+            }
+            properties = OfficeUtils.toUnoProperties(storeProperties);
+            this.unoStorePropertiesByFamily.put(family, properties);
+        }
+        return properties;
+    }
 }
@@ -0,0 +1,325 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.document;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Detects the format of a document from its content rather than its file name, by looking at its first bytes and,
+ * for ZIP and OLE2 containers, at the names of the entries they hold. This is much cheaper than letting office detect
+ * the type of the document, and works for documents with a wrong or missing extension.
+ * <p>
+ * Recognizes ODF and OpenOffice.org 1.0 documents, OOXML, OLE2 Word, Excel and PowerPoint documents, PDF, RTF and
+ * HTML, and comma or tab separated values. Plain text is not recognized, since almost anything could be text.
+ * <p>
+ * Only binary signatures (ZIP, OLE2, PDF, RTF) take precedence over the file extension. The text heuristics are weak,
+ * e.g. any prose with the same number of commas on each line looks like CSV, so they only confirm a known extension or
+ * name the format of a file whose extension is unknown.
+ */
+public class DocumentFormatSniffer
+{
+    /** How much of the document is read to recognize text based formats. */
+    private static final int HEADER_SIZE = 8192;
+
+    static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+
+    private static final String PDF = "pdf";
+
+    private static final String RTF = "rtf";
+
+    /** The office import filters, by format extension, passed explicitly so that office doesn't detect them again. */
+    private static final Map<String, String> IMPORT_FILTERS = new HashMap<String, String>();
+
+    static {
+        IMPORT_FILTERS.put("odt", "writer8");
+        IMPORT_FILTERS.put("ods", "calc8");
+        IMPORT_FILTERS.put("odp", "impress8");
+        IMPORT_FILTERS.put("odg", "draw8");
+        IMPORT_FILTERS.put("sxw", "StarOffice XML (Writer)");
+        IMPORT_FILTERS.put("sxc", "StarOffice XML (Calc)");
+        IMPORT_FILTERS.put("sxi", "StarOffice XML (Impress)");
+        IMPORT_FILTERS.put("doc", "MS Word 97");
+        IMPORT_FILTERS.put("docx", "MS Word 2007 XML");
+        IMPORT_FILTERS.put("xls", "MS Excel 97");
+        IMPORT_FILTERS.put("xlsx", "Calc MS Excel 2007 XML");
+        IMPORT_FILTERS.put("ppt", "MS PowerPoint 97");
+        IMPORT_FILTERS.put("pptx", "Impress MS PowerPoint 2007 XML");
+        IMPORT_FILTERS.put("rtf", "Rich Text Format");
+        IMPORT_FILTERS.put("html", "HTML (StarWriter)");
+        IMPORT_FILTERS.put("pdf", "draw_pdf_import");
+    }
+
+    private final DocumentFormatRegistry formatRegistry;
+
+    public DocumentFormatSniffer(DocumentFormatRegistry formatRegistry)
+    {
+        this.formatRegistry = formatRegistry;
+    }
+
+    /**
+     * @param file the document to inspect
+     * @return the format of the document, or <code>null</code> if it is not recognized, not in the registry, or if
+     *         the text heuristics contradict the file extension
+     * @throws IOException if the document can't be read
+     */
+    public DocumentFormat sniff(File file) throws IOException
+    {
+        Detection detection = detect(file);
+        return detection != null ? detection.getFormat() : null;
+    }
+
+    /**
+     * Like {@link #sniff(File)}, but also tells which office import filter can load the document.
+     * 
+     * @param file the document to inspect
+     * @return the detected format and import filter, or <code>null</code> if the format is not recognized
+     * @throws IOException if the document can't be read
+     */
+    public Detection detect(File file) throws IOException
+    {
+        byte[] header = readHeader(file);
+        DocumentFormat format;
+        if (startsWith(header, ZIP_SIGNATURE)) {
+            format = sniffZip(file);
+        } else if (startsWith(header, Ole2Directory.SIGNATURE)) {
+            return sniffOle2(file);
+        } else {
+            String extension = sniffText(header);
+            format = getFormat(extension);
+            if (!PDF.equals(extension) && !RTF.equals(extension)) {
+                DocumentFormat extensionFormat = getFormat(FilenameUtils.getExtension(file.getName()).toLowerCase());
+                if (extensionFormat != null && extensionFormat != format) {
+                    format = null;
+                }
+            }
+        }
+        return format != null ? new Detection(format, getFilterName(format)) : null;
+    }
+
+    /**
+     * @param format a document format, usually returned by {@link #sniff(File)}
+     * @return the name of the office import filter for the format, or <code>null</code> if it is not known
+     */
+    public String getFilterName(DocumentFormat format)
+    {
+        if (format.getLoadProperties() != null && format.getLoadProperties().get("FilterName") instanceof String) {
+            return (String) format.getLoadProperties().get("FilterName");
+        }
+        return IMPORT_FILTERS.get(format.getExtension());
+    }
+
+    private DocumentFormat getFormat(String extension)
+    {
+        return extension != null ? this.formatRegistry.getFormatByExtension(extension) : null;
+    }
+
+    /**
+     * @return the first bytes of the file, at most {@value #HEADER_SIZE}
+     */
+    static byte[] readHeader(File file) throws IOException
+    {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            byte[] header = new byte[(int) Math.min(HEADER_SIZE, input.length())];
+            input.readFully(header);
+            return header;
+        } finally {
+            input.close();
+        }
+    }
+
+    private DocumentFormat sniffZip(File file) throws IOException
+    {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(file);
+        } catch (ZipException zipException) {
+            return null;
+        }
+        try {
+            ZipEntry mimetype = zipFile.getEntry("mimetype");
+            if (mimetype != null) {
+                // ODF and OpenOffice.org 1.0 documents start with their media type
+                InputStream input = zipFile.getInputStream(mimetype);
+                try {
+                    String mediaType = IOUtils.toString(input, StandardCharsets.US_ASCII).trim();
+                    return this.formatRegistry.getFormatByMediaType(mediaType);
+                } finally {
+                    input.close();
+                }
+            }
+            Enumeration< ? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith("word/")) {
+                    return getFormat("docx");
+                } else if (name.startsWith("xl/")) {
+                    return getFormat("xlsx");
+                } else if (name.startsWith("ppt/")) {
+                    return getFormat("pptx");
+                }
+            }
+            return null;
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Looks for the main stream of the Word, Excel and PowerPoint binary formats in the directory of an OLE2 compound
+     * file. The filters for the 97 formats can't load older versions, which are left to office type detection: Word
+     * 6.0/95 documents have no table stream and Excel 5.0/95 workbooks have a <code>Book</code> stream instead of a
+     * <code>Workbook</code> one.
+     */
+    private Detection sniffOle2(File file) throws IOException
+    {
+        List<String> entryNames = Ole2Directory.getEntryNames(file);
+        String extension;
+        boolean legacy = false;
+        if (entryNames.contains("WordDocument")) {
+            extension = "doc";
+            legacy = !entryNames.contains("0Table") && !entryNames.contains("1Table");
+        } else if (entryNames.contains("Workbook") || entryNames.contains("Book")) {
+            extension = "xls";
+            legacy = !entryNames.contains("Workbook");
+        } else if (entryNames.contains("PowerPoint Document")) {
+            extension = "ppt";
+        } else {
+            return null;
+        }
+        DocumentFormat format = getFormat(extension);
+        if (format == null) {
+            return null;
+        }
+        return new Detection(format, legacy ? null : getFilterName(format));
+    }
+
+    private String sniffText(byte[] header)
+    {
+        if (startsWith(header, "%PDF-".getBytes(StandardCharsets.US_ASCII))) {
+            return PDF;
+        }
+        if (startsWith(header, "{\\rtf".getBytes(StandardCharsets.US_ASCII))) {
+            return RTF;
+        }
+        for (byte b : header) {
+            if (b == 0) {
+                // binary
+                return null;
+            }
+        }
+        String text = new String(header, StandardCharsets.ISO_8859_1);
+        // skip the UTF-8 byte order mark
+        String start = (text.startsWith("\u00EF\u00BB\u00BF") ? text.substring(3) : text).trim().toLowerCase();
+        if (start.startsWith("<!doctype html") || start.startsWith("<html") || start.contains("<html")
+            && (start.contains("<head") || start.contains("<body"))) {
+            return "html";
+        }
+        if (isDelimited(text, ',')) {
+            return "csv";
+        }
+        if (isDelimited(text, '\t')) {
+            return "tsv";
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the complete lines of the text have the same, non zero, number of delimiters outside quotes
+     */
+    private boolean isDelimited(String text, char delimiter)
+    {
+        String[] lines = text.split("\r\n|\n|\r");
+        // the last line may have been cut
+        int lineCount = text.length() < HEADER_SIZE ? lines.length : lines.length - 1;
+        if (lineCount < 2) {
+            return false;
+        }
+        int expected = -1;
+        for (int i = 0; i < lineCount; i++) {
+            int count = 0;
+            boolean quoted = false;
+            for (char c : lines[i].toCharArray()) {
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == delimiter && !quoted) {
+                    count++;
+                }
+            }
+            if (lines[i].isEmpty() && i == lineCount - 1) {
+                continue;
+            }
+            if (count == 0 || (expected >= 0 && count != expected)) {
+                return false;
+            }
+            expected = count;
+        }
+        return true;
+    }
+
+    static boolean startsWith(byte[] bytes, byte[] prefix)
+    {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The result of {@link DocumentFormatSniffer#detect(File)}.
+     */
+    public static final class Detection
+    {
+        private final DocumentFormat format;
+
+        private final String filterName;
+
+        Detection(DocumentFormat format, String filterName)
+        {
+            this.format = format;
+            this.filterName = filterName;
+        }
+
+        public DocumentFormat getFormat()
+        {
+            return this.format;
+        }
+
+        /**
+         * @return the office import filter to load the document with, or <code>null</code> to let office detect it
+         */
+        public String getFilterName()
+        {
+            return this.filterName;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.document;
+
+import org.artofsolving.jodconverter.office.OfficeException;
+
+/**
+ * Thrown when a document is rejected before conversion because it can't or shouldn't be converted, e.g. it is empty,
+ * corrupted, encrypted or too large.
+ */
+public class InvalidDocumentException extends OfficeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public InvalidDocumentException(String message)
+    {
+        super(message);
+    }
+
+    public InvalidDocumentException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
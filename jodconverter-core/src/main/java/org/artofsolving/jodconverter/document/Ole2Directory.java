@@ -0,0 +1,119 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.document;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the names of the entries of an OLE2 compound file, the container of the binary Microsoft Office formats,
+ * without reading the entries themselves.
+ */
+final class Ole2Directory
+{
+    static final byte[] SIGNATURE =
+        {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+
+    /** The maximum number of directory sectors read, so that a corrupted file can't loop forever. */
+    private static final int MAX_DIRECTORY_SECTORS = 128;
+
+    private Ole2Directory()
+    {
+        throw new AssertionError("utility class must not be instantiated");
+    }
+
+    /**
+     * @param file an OLE2 compound file
+     * @return the names of the storages and streams of the file, empty if the file is truncated or not a valid
+     *         compound file
+     * @throws IOException if the file can't be read
+     */
+    static List<String> getEntryNames(File file) throws IOException
+    {
+        List<String> entryNames = new ArrayList<String>();
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer header = read(input, 0, 512);
+            int sectorSize = 1 << header.getShort(0x1E);
+            if (sectorSize != 512 && sectorSize != 4096) {
+                return entryNames;
+            }
+            int sector = header.getInt(0x30);
+            for (int i = 0; i < MAX_DIRECTORY_SECTORS && sector >= 0; i++) {
+                ByteBuffer directory = read(input, (long) (sector + 1) * sectorSize, sectorSize);
+                for (int offset = 0; offset + 128 <= sectorSize; offset += 128) {
+                    String entryName = getEntryName(directory, offset);
+                    if (entryName != null) {
+                        entryNames.add(entryName);
+                    }
+                }
+                sector = getNextSector(input, header, sectorSize, sector);
+            }
+        } catch (EOFException eofException) {
+            // truncated or not really an OLE2 file
+        } finally {
+            input.close();
+        }
+        return entryNames;
+    }
+
+    private static String getEntryName(ByteBuffer directory, int offset)
+    {
+        // the length in bytes includes the terminating null character
+        int length = directory.getShort(offset + 0x40) - 2;
+        if (length <= 0 || length > 62) {
+            return null;
+        }
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++) {
+            name[i] = directory.get(offset + i);
+        }
+        return new String(name, StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * @return the sector following the given one in the file allocation table, or -1 at the end of the chain or if
+     *         the table can't be read from the header alone
+     */
+    private static int getNextSector(RandomAccessFile input, ByteBuffer header, int sectorSize, int sector)
+        throws IOException
+    {
+        int entriesPerSector = sectorSize / 4;
+        int fatIndex = sector / entriesPerSector;
+        // the header lists the first 109 sectors of the allocation table
+        if (fatIndex >= 109) {
+            return -1;
+        }
+        int fatSector = header.getInt(0x4C + fatIndex * 4);
+        if (fatSector < 0) {
+            return -1;
+        }
+        long position = (long) (fatSector + 1) * sectorSize + (sector % entriesPerSector) * 4;
+        return read(input, position, 4).getInt(0);
+    }
+
+    private static ByteBuffer read(RandomAccessFile input, long position, int length) throws IOException
+    {
+        byte[] bytes = new byte[length];
+        input.seek(position);
+        input.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,190 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.document;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * Cheap checks of a document before it is handed to office, so that documents office would fail on, or take too long
+ * to convert, are rejected without occupying an office process until the task times out.
+ * <p>
+ * Rejects missing, empty and too large files, ZIP containers whose directory is corrupted, OLE2 containers whose
+ * directory can't be read, and password protected ODF and OOXML documents. Also estimates the number of pages,
+ * sheets or slides of ODF and OOXML documents from their metadata, to reject documents that are too long.
+ */
+public class PreflightChecker
+{
+    /** The maximum size of the metadata entries read from ZIP containers. */
+    private static final int MAX_METADATA_SIZE = 1024 * 1024;
+
+    private static final Pattern ODF_PAGE_COUNT = Pattern.compile("meta:page-count=\"(\\d+)\"");
+
+    /** The number of sheets of a spreadsheet; in other documents, the number of tables they contain. */
+    private static final Pattern ODF_TABLE_COUNT = Pattern.compile("meta:table-count=\"(\\d+)\"");
+
+    private static final Pattern OOXML_PAGE_COUNT = Pattern.compile("<(?:Pages|Slides)>(\\d+)</");
+
+    private long maxFileSize;
+
+    private int maxPages;
+
+    /**
+     * @param maxFileSize the maximum size in bytes of the documents, 0 for no limit
+     */
+    public void setMaxFileSize(long maxFileSize)
+    {
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * @param maxPages the maximum number of pages, sheets or slides of the documents, when it can be estimated; 0 for
+     *        no limit
+     */
+    public void setMaxPages(int maxPages)
+    {
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * @param file the document to check
+     * @return the estimated number of pages, sheets or slides of the document, or 0 if unknown
+     * @throws InvalidDocumentException if the document should not be converted
+     */
+    public int check(File file) throws InvalidDocumentException
+    {
+        if (!file.isFile()) {
+            throw new InvalidDocumentException("input document not found: " + file.getName());
+        }
+        long length = file.length();
+        if (length == 0) {
+            throw new InvalidDocumentException("empty document: " + file.getName());
+        }
+        if (this.maxFileSize > 0 && length > this.maxFileSize) {
+            throw new InvalidDocumentException(String.format("document too large: %s; %d bytes, limit is %d",
+                file.getName(), length, this.maxFileSize));
+        }
+        int pages = 0;
+        try {
+            byte[] header = DocumentFormatSniffer.readHeader(file);
+            if (DocumentFormatSniffer.startsWith(header, DocumentFormatSniffer.ZIP_SIGNATURE)) {
+                pages = checkZip(file);
+            } else if (DocumentFormatSniffer.startsWith(header, Ole2Directory.SIGNATURE)) {
+                checkOle2(file);
+            }
+        } catch (IOException ioException) {
+            throw new InvalidDocumentException("could not read document: " + file.getName(), ioException);
+        }
+        if (this.maxPages > 0 && pages > this.maxPages) {
+            throw new InvalidDocumentException(String.format("document too long: %s; %d pages, limit is %d",
+                file.getName(), pages, this.maxPages));
+        }
+        return pages;
+    }
+
+    private int checkZip(File file) throws IOException
+    {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(file);
+        } catch (ZipException zipException) {
+            throw new InvalidDocumentException("corrupted document: " + file.getName(), zipException);
+        }
+        try {
+            String manifest = readEntry(zipFile, "META-INF/manifest.xml");
+            if (manifest != null && manifest.contains("encryption-data")) {
+                throw new InvalidDocumentException("password protected document: " + file.getName());
+            }
+            String meta = readEntry(zipFile, "meta.xml");
+            if (meta != null) {
+                String mediaType = readEntry(zipFile, "mimetype");
+                boolean spreadsheet =
+                    mediaType != null
+                        && (mediaType.startsWith("application/vnd.oasis.opendocument.spreadsheet")
+                            || mediaType.startsWith("application/vnd.sun.xml.calc"));
+                return getPageCount(spreadsheet ? ODF_TABLE_COUNT : ODF_PAGE_COUNT, meta);
+            }
+            String properties = readEntry(zipFile, "docProps/app.xml");
+            if (properties != null) {
+                int pages = getPageCount(OOXML_PAGE_COUNT, properties);
+                if (pages > 0) {
+                    return pages;
+                }
+            }
+            // spreadsheets don't record their sheet count in their properties
+            int sheets = 0;
+            Enumeration< ? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith("xl/worksheets/") && name.endsWith(".xml") && name.indexOf('/', 14) < 0) {
+                    sheets++;
+                }
+            }
+            return sheets;
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private void checkOle2(File file) throws IOException
+    {
+        List<String> entryNames = Ole2Directory.getEntryNames(file);
+        if (entryNames.isEmpty()) {
+            throw new InvalidDocumentException("corrupted document: " + file.getName());
+        }
+        if (entryNames.contains("EncryptedPackage")) {
+            // a password protected OOXML document
+            throw new InvalidDocumentException("password protected document: " + file.getName());
+        }
+    }
+
+    private String readEntry(ZipFile zipFile, String name) throws IOException
+    {
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        InputStream input = new BoundedInputStream(zipFile.getInputStream(entry), MAX_METADATA_SIZE);
+        try {
+            return IOUtils.toString(input, StandardCharsets.UTF_8);
+        } finally {
+            input.close();
+        }
+    }
+
+    private int getPageCount(Pattern pattern, String metadata)
+    {
+        int pages = 0;
+        Matcher matcher = pattern.matcher(metadata);
+        while (matcher.find()) {
+            try {
+                pages = Math.max(pages, Integer.parseInt(matcher.group(1)));
+            } catch (NumberFormatException numberFormatException) {
+                // ignore
+            }
+        }
+        return pages;
+    }
+}
@@ -13,17 +13,46 @@
 package org.artofsolving.jodconverter.document;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * A registry of document formats indexed by extension, media type and family.
+ * <p>
+ * Every {@link #addFormat(DocumentFormat)} builds a new immutable index that is then published at once, so lookups
+ * are constant time and need no locking. Formats shouldn't be modified once added.
+ */
 public class SimpleDocumentFormatRegistry implements DocumentFormatRegistry
 {
-    private List<DocumentFormat> documentFormats = new ArrayList<DocumentFormat>();
+    /** Alternative extensions, looked up when no format uses them directly. */
+    private static final Map<String, String> EXTENSION_ALIASES = new HashMap<String, String>();
 
-    public void addFormat(DocumentFormat documentFormat)
+    static {
+        EXTENSION_ALIASES.put("jpeg", "jpg");
+        EXTENSION_ALIASES.put("htm", "html");
+        EXTENSION_ALIASES.put("tif", "tiff");
+    }
+
+    private volatile Index index = new Index(Collections.<DocumentFormat> emptyList());
+
+    public synchronized void addFormat(DocumentFormat documentFormat)
+    {
+        List<DocumentFormat> documentFormats = new ArrayList<DocumentFormat>(this.index.documentFormats);
+        documentFormats.add(documentFormat);
+        this.index = new Index(documentFormats);
+    }
+
+    /**
+     * @return the registered formats, in registration order
+     */
+    List<DocumentFormat> getFormats()
     {
-        this.documentFormats.add(documentFormat);
+        return this.index.documentFormats;
     }
 
     public DocumentFormat getFormatByExtension(String extension)
@@ -31,14 +60,7 @@ public DocumentFormat getFormatByExtension(String extension)
         if (extension == null) {
             return null;
         }
-        String lowerExtension = extension.toLowerCase();
-        // TODO keep a documentByExtension map instead
-        for (DocumentFormat format : this.documentFormats) {
-            if (format.getExtension().equals(lowerExtension)) {
-                return format;
-            }
-        }
-        return null;
+        return this.index.formatsByExtension.get(extension.toLowerCase());
     }
 
     public DocumentFormat getFormatByMediaType(String mediaType)
@@ -46,23 +68,55 @@ public DocumentFormat getFormatByMediaType(String mediaType)
         if (mediaType == null) {
             return null;
         }
-        // TODO keep a documentByMediaType map instead
-        for (DocumentFormat format : this.documentFormats) {
-            if (format.getMediaType().equals(mediaType)) {
-                return format;
-            }
-        }
-        return null;
+        return this.index.formatsByMediaType.get(mediaType);
     }
 
     public Set<DocumentFormat> getOutputFormats(DocumentFamily family)
     {
-        Set<DocumentFormat> formats = new HashSet<DocumentFormat>();
-        for (DocumentFormat format : this.documentFormats) {
-            if (format.getStoreProperties(family) != null) {
-                formats.add(format);
+        Set<DocumentFormat> formats = this.index.outputFormatsByFamily.get(family);
+        return formats != null ? formats : Collections.<DocumentFormat> emptySet();
+    }
+
+    /**
+     * Immutable lookup tables; when several formats share a key the first registered one wins.
+     */
+    private static class Index
+    {
+        private final List<DocumentFormat> documentFormats;
+
+        private final Map<String, DocumentFormat> formatsByExtension = new HashMap<String, DocumentFormat>();
+
+        private final Map<String, DocumentFormat> formatsByMediaType = new HashMap<String, DocumentFormat>();
+
+        private final Map<DocumentFamily, Set<DocumentFormat>> outputFormatsByFamily =
+            new EnumMap<DocumentFamily, Set<DocumentFormat>>(DocumentFamily.class);
+
+        Index(List<DocumentFormat> documentFormats)
+        {
+            this.documentFormats = Collections.unmodifiableList(documentFormats);
+            for (DocumentFormat format : documentFormats) {
+                if (format.getExtension() != null && !this.formatsByExtension.containsKey(format.getExtension())) {
+                    this.formatsByExtension.put(format.getExtension(), format);
+                }
+                if (format.getMediaType() != null && !this.formatsByMediaType.containsKey(format.getMediaType())) {
+                    this.formatsByMediaType.put(format.getMediaType(), format);
+                }
+            }
+            for (Map.Entry<String, String> alias : EXTENSION_ALIASES.entrySet()) {
+                DocumentFormat format = this.formatsByExtension.get(alias.getValue());
+                if (format != null && !this.formatsByExtension.containsKey(alias.getKey())) {
+                    this.formatsByExtension.put(alias.getKey(), format);
+                }
+            }
+            for (DocumentFamily family : DocumentFamily.values()) {
+                Set<DocumentFormat> formats = new LinkedHashSet<DocumentFormat>();
+                for (DocumentFormat format : documentFormats) {
+                    if (format.getStoreProperties(family) != null) {
+                        formats.add(format);
+                    }
+                }
+                this.outputFormatsByFamily.put(family, Collections.unmodifiableSet(formats));
             }
         }
-        return formats;
     }
 }
@@ -19,6 +19,19 @@
  */
 package org.artofsolving.jodconverter.filter;
 
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.FileUtils;
 import org.artofsolving.jodconverter.office.OfficeContext;
 import org.artofsolving.jodconverter.office.OfficeException;
 import org.artofsolving.jodconverter.office.OfficeUtils;
@@ -32,27 +45,57 @@
 import com.sun.star.graphic.XGraphicProvider;
 import com.sun.star.lang.XComponent;
 import com.sun.star.lang.XServiceInfo;
+import com.sun.star.lib.uno.adapter.ByteArrayToXInputStreamAdapter;
 import com.sun.star.text.XTextGraphicObjectsSupplier;
 import com.sun.star.uno.Any;
-import com.sun.star.text.XTextContent;
 import com.sun.star.uno.AnyConverter;
 import com.sun.star.uno.UnoRuntime;
-import com.sun.star.uno.XComponentContext;
 
 /**
  * Embeds external images.
+ * <p>
+ * Linked images are collected in a first pass, then each distinct URL is fetched only once, so an image repeated many
+ * times (e.g. a logo) is loaded once. Local image files can also be read in parallel before being handed to office,
+ * see {@link #setPreloadExecutor(Executor)}.
  * 
  * @version $Id$
  * @since 3.1-xwiki
  */
 public class ImageEmbedderFilter implements OfficeDocumentFilter
 {
+    private Executor preloadExecutor;
+
+    /**
+     * Sets the executor used to read linked local image files in parallel before embedding them, instead of letting
+     * office read them one by one. Disabled by default.
+     * 
+     * @param preloadExecutor the executor, or <code>null</code> to let office read the images
+     */
+    public void setPreloadExecutor(Executor preloadExecutor)
+    {
+        this.preloadExecutor = preloadExecutor;
+    }
+
+    /**
+     * Only applies to text documents that have graphic objects.
+     */
+    @Override
+    public boolean isApplicable(XComponent document, OfficeContext context)
+    {
+        if (!OfficeUtils.cast(XServiceInfo.class, document).supportsService("com.sun.star.text.GenericTextDocument")) {
+            return false;
+        }
+        XTextGraphicObjectsSupplier graphicObjectsSupplier =
+            UnoRuntime.queryInterface(XTextGraphicObjectsSupplier.class, document);
+        return graphicObjectsSupplier != null && graphicObjectsSupplier.getGraphicObjects().hasElements();
+    }
+
     @Override
     public void filter(XComponent document, OfficeContext context) throws OfficeException
     {
         if (OfficeUtils.cast(XServiceInfo.class, document).supportsService("com.sun.star.text.GenericTextDocument")) {
             try {
-                convertLinkedImagesToEmbeded(context.getComponentContext(), document);
+                convertLinkedImagesToEmbeded(context, document);
             } catch (Exception e) {
                 // skip this graphic
             }
@@ -64,64 +107,161 @@ public void filter(XComponent document, OfficeContext context) throws OfficeExce
      * <a href="http://github.com/sbraconnier/jodconverter">JodConverter's official LinkedImageEmbeddedFilter</a>.
      */
     private void convertLinkedImagesToEmbeded(
-        final XComponentContext context, final XComponent document) throws Exception {
+        final OfficeContext context, final XComponent document) throws Exception {
 
-        // Create a GraphicProvider.
+        // Since 6.1, we must use "Graphic" instead of "GraphicURL"
+        final boolean graphicProperty = "libreoffice".equalsIgnoreCase(context.getOfficeName())
+            && Info.compareVersions(context.getOfficeVersion(), "6.1", 2) >= 0;
+        final List<LinkedImage> linkedImages = collectLinkedImages(document, graphicProperty);
+        if (linkedImages.isEmpty()) {
+            return;
+        }
+
+        // The GraphicProvider is cached by the connection.
         final XGraphicProvider graphicProvider =
-            UnoRuntime.queryInterface(
-                XGraphicProvider.class,
-                context
-                    .getServiceManager()
-                    .createInstanceWithContext("com.sun.star.graphic.GraphicProvider", context));
+            UnoRuntime.queryInterface(XGraphicProvider.class, context.getService(OfficeUtils.SERVICE_GRAPHIC_PROVIDER));
+        final Map<String, XGraphic> graphics = queryGraphics(graphicProvider, linkedImages);
+
+        for (LinkedImage linkedImage : linkedImages) {
+            final XGraphic graphic = graphics.get(linkedImage.url);
+            if (graphic == null) {
+                // skip this graphic
+                continue;
+            }
+            try {
+                linkedImage.properties.setPropertyValue("Graphic", graphic);
+                if (linkedImage.specifiedSize != null) {
+                    // Images are embedded as characters (see TextContentAnchorType.AS_CHARACTER) and their size is
+                    // messed up if it's not explicitly specified (e.g. if the image height is not specified then it
+                    // takes the line height).
+                    adjustImageSize(linkedImage.properties, linkedImage.specifiedSize);
+                }
+            } catch (Exception e) {
+                // skip this graphic
+            }
+        }
+    }
+
+    /**
+     * Collects the images that are not embedded, in a single pass over the graphic objects of the document.
+     */
+    private List<LinkedImage> collectLinkedImages(final XComponent document, final boolean graphicProperty)
+        throws Exception {
+
         final XIndexAccess indexAccess =
             UnoRuntime.queryInterface(
                 XIndexAccess.class,
                 UnoRuntime.queryInterface(XTextGraphicObjectsSupplier.class, document)
                     .getGraphicObjects());
-        for (int i = 0; i < indexAccess.getCount(); i++) {
-            final Any xImageAny = (Any) indexAccess.getByIndex(i);
-            final Object xImageObject = xImageAny.getObject();
-            final XTextContent xImage = (XTextContent) xImageObject;
-            final XServiceInfo xInfo = UnoRuntime.queryInterface(XServiceInfo.class, xImage);
-            if (xInfo.supportsService("com.sun.star.text.TextGraphicObject")) {
+        final List<LinkedImage> linkedImages = new ArrayList<LinkedImage>();
+        final int count = indexAccess.getCount();
+        for (int i = 0; i < count; i++) {
+            try {
+                final Object element = indexAccess.getByIndex(i);
+                final Object xImage = element instanceof Any ? ((Any) element).getObject() : element;
+                final XServiceInfo xInfo = UnoRuntime.queryInterface(XServiceInfo.class, xImage);
+                if (xInfo == null || !xInfo.supportsService("com.sun.star.text.TextGraphicObject")) {
+                    continue;
+                }
                 final XPropertySet xPropSet = UnoRuntime.queryInterface(XPropertySet.class, xImage);
-                if (Info.isLibreOffice(context)
-                    && Info.compareVersions(Info.getOfficeVersionShort(context), "6.1", 2) >= 0) {
+                final LinkedImage linkedImage = new LinkedImage(xPropSet);
+                if (graphicProperty) {
                     final XGraphic xGraphic =
                         (XGraphic)
                             AnyConverter.toObject(XGraphic.class, xPropSet.getPropertyValue("Graphic"));
                     // Only ones that are not embedded
                     final XPropertySet xGraphixPropSet = UnoRuntime.queryInterface(XPropertySet.class, xGraphic);
-                    boolean linked = (boolean) xGraphixPropSet.getPropertyValue("Linked");
-                    if (linked) {
-                        // Since 6.1, we must use "Graphic" instead of "GraphicURL"
-                        final PropertyValue[] props =
-                            new PropertyValue[] {new PropertyValue(), new PropertyValue()};
-                        props[0].Name = "URL";
-                        props[0].Value = xGraphixPropSet.getPropertyValue("OriginURL").toString();
-                        props[1].Name = "LoadAsLink";
-                        props[1].Value = false;
-                        xPropSet.setPropertyValue("Graphic", graphicProvider.queryGraphic(props));
+                    if ((boolean) xGraphixPropSet.getPropertyValue("Linked")) {
+                        linkedImage.url = xGraphixPropSet.getPropertyValue("OriginURL").toString();
                     }
                 } else {
                     final String graphicURL = xPropSet.getPropertyValue("GraphicURL").toString();
-                    XPropertySet graphicProperties = OfficeUtils.cast(XPropertySet.class, indexAccess.getByIndex(i));
-                    PropertyValue[] queryProperties = new PropertyValue[] {new PropertyValue()};
                     // Only ones that are not embedded
                     if (graphicURL.indexOf("vnd.sun.") == -1) {
-                        queryProperties[0].Value = graphicURL;
-                        // Before embedding the image, the "ActualSize" property holds the image size specified in the
-                        // document content. If the width or height are not specified then their actual values will be 0.
-                        Size specifiedSize = OfficeUtils.cast(Size.class, graphicProperties.getPropertyValue("ActualSize"));
-                        graphicProperties.setPropertyValue("Graphic", graphicProvider.queryGraphic(queryProperties));
-                        // Images are embedded as characters (see TextContentAnchorType.AS_CHARACTER) and their size is
-                        // messed up if it's not explicitly specified (e.g. if the image height is not specified then it
-                        // takes the line height).
-                        adjustImageSize(graphicProperties, specifiedSize);
+                        linkedImage.url = graphicURL;
+                        // Before embedding the image, the "ActualSize" property holds the image size specified in
+                        // the document content. If the width or height are not specified then their actual values
+                        // will be 0.
+                        linkedImage.specifiedSize =
+                            OfficeUtils.cast(Size.class, xPropSet.getPropertyValue("ActualSize"));
                     }
                 }
+                if (linkedImage.url != null) {
+                    linkedImages.add(linkedImage);
+                }
+            } catch (Exception e) {
+                // skip this graphic
             }
         }
+        return linkedImages;
+    }
+
+    /**
+     * Fetches each distinct image URL once.
+     */
+    private Map<String, XGraphic> queryGraphics(final XGraphicProvider graphicProvider,
+        final List<LinkedImage> linkedImages) {
+
+        final Set<String> urls = new LinkedHashSet<String>();
+        for (LinkedImage linkedImage : linkedImages) {
+            urls.add(linkedImage.url);
+        }
+        final Map<String, CompletableFuture<byte[]>> preloads = preload(urls);
+        final Map<String, XGraphic> graphics = new HashMap<String, XGraphic>();
+        for (String url : urls) {
+            try {
+                XGraphic graphic = null;
+                final CompletableFuture<byte[]> preload = preloads.get(url);
+                final byte[] content = preload != null ? preload.join() : null;
+                if (content != null) {
+                    graphic = graphicProvider.queryGraphic(new PropertyValue[] {
+                        OfficeUtils.property("InputStream", new ByteArrayToXInputStreamAdapter(content))});
+                }
+                if (graphic == null) {
+                    graphic = graphicProvider.queryGraphic(new PropertyValue[] {
+                        OfficeUtils.property("URL", url), OfficeUtils.property("LoadAsLink", false)});
+                }
+                graphics.put(url, graphic);
+            } catch (Exception e) {
+                // skip this graphic
+            }
+        }
+        return graphics;
+    }
+
+    /**
+     * Starts reading the local image files in parallel, if a preload executor is set.
+     */
+    private Map<String, CompletableFuture<byte[]>> preload(final Set<String> urls) {
+
+        final Map<String, CompletableFuture<byte[]>> preloads = new HashMap<String, CompletableFuture<byte[]>>();
+        if (this.preloadExecutor == null) {
+            return preloads;
+        }
+        for (String url : urls) {
+            if (!url.startsWith("file:")) {
+                continue;
+            }
+            final File file;
+            try {
+                file = new File(new URI(url));
+            } catch (Exception e) {
+                continue;
+            }
+            preloads.put(url, CompletableFuture.supplyAsync(new Supplier<byte[]>()
+            {
+                public byte[] get()
+                {
+                    try {
+                        return FileUtils.readFileToByteArray(file);
+                    } catch (Exception e) {
+                        // let office fetch the image
+                        return null;
+                    }
+                }
+            }, this.preloadExecutor));
+        }
+        return preloads;
     }
 
     private void adjustImageSize(XPropertySet graphicProperties, Size specifiedSize)
@@ -143,4 +283,22 @@ private void adjustImageSize(XPropertySet graphicProperties, Size specifiedSize)
             // Ignore this image.
         }
     }
+
+    /**
+     * A graphic object of the document that links to an external image.
+     */
+    private static class LinkedImage
+    {
+        private final XPropertySet properties;
+
+        private String url;
+
+        /** The size specified in the document, only needed before LibreOffice 6.1. */
+        private Size specifiedSize;
+
+        LinkedImage(XPropertySet properties)
+        {
+            this.properties = properties;
+        }
+    }
 }
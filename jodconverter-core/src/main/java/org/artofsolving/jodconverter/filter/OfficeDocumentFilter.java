@@ -26,6 +26,9 @@
 
 /**
  * Interface used to filter Office documents.
+ * <p>
+ * A filter instance is shared by all the conversions of a converter, which may run concurrently on different office
+ * processes, so implementations must be thread-safe: keep no state about the document being filtered in fields.
  * 
  * @version $Id$
  * @since 3.1-xwiki
@@ -40,4 +43,17 @@
      * @throws OfficeException if filtering the office document fails
      */
     void filter(XComponent document, OfficeContext context) throws OfficeException;
+
+    /**
+     * Checks whether this filter has anything to do on the given document, so that expensive filters can be skipped.
+     * Implementations should only do cheap inspections.
+     * 
+     * @param document the office document to filter
+     * @param context the office context, can be used to access office services
+     * @return {@code false} if filtering the document would have no effect, {@code true} by default
+     */
+    default boolean isApplicable(XComponent document, OfficeContext context)
+    {
+        return true;
+    }
 }
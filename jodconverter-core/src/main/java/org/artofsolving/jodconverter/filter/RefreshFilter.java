@@ -23,17 +23,50 @@
 import org.artofsolving.jodconverter.office.OfficeException;
 import org.artofsolving.jodconverter.office.OfficeUtils;
 
+import com.sun.star.container.XEnumerationAccess;
+import com.sun.star.container.XIndexAccess;
 import com.sun.star.lang.XComponent;
+import com.sun.star.lang.XServiceInfo;
+import com.sun.star.text.XDocumentIndexesSupplier;
+import com.sun.star.text.XTextFieldsSupplier;
 import com.sun.star.util.XRefreshable;
 
 /**
  * Refreshes the documents that support this operation.
+ * <p>
+ * Text documents are only refreshed when they have fields or indexes, since refreshing recomputes them all.
  * 
  * @version $Id$
  * @since 3.1-xwiki
  */
 public class RefreshFilter implements OfficeDocumentFilter
 {
+    @Override
+    public boolean isApplicable(XComponent document, OfficeContext context)
+    {
+        if (OfficeUtils.cast(XRefreshable.class, document) == null) {
+            return false;
+        }
+        XServiceInfo serviceInfo = OfficeUtils.cast(XServiceInfo.class, document);
+        if (serviceInfo == null || !serviceInfo.supportsService("com.sun.star.text.GenericTextDocument")) {
+            // spreadsheets, presentations, etc.
+            return true;
+        }
+        XTextFieldsSupplier fieldsSupplier = OfficeUtils.cast(XTextFieldsSupplier.class, document);
+        if (fieldsSupplier != null) {
+            XEnumerationAccess fields = fieldsSupplier.getTextFields();
+            if (fields != null && fields.createEnumeration().hasMoreElements()) {
+                return true;
+            }
+        }
+        XDocumentIndexesSupplier indexesSupplier = OfficeUtils.cast(XDocumentIndexesSupplier.class, document);
+        if (indexesSupplier != null) {
+            XIndexAccess indexes = indexesSupplier.getDocumentIndexes();
+            return indexes != null && indexes.getCount() > 0;
+        }
+        return false;
+    }
+
     @Override
     public void filter(XComponent document, OfficeContext context) throws OfficeException
     {
@@ -0,0 +1,137 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A list of tasks submitted as a single unit, so that they all run one after the other on the same office process
+ * without going through the task queue of the office manager again. Useful to convert many small documents.
+ * <p>
+ * Tasks are executed in order, each with its own execution timeout when run by a pooled office manager. The failure
+ * of one task doesn't prevent the next ones from running: the batch itself completes normally and the failures can
+ * be retrieved with {@link #getFailure(int)}.
+ */
+public class BatchOfficeTask implements OfficeTask
+{
+    private final List<OfficeTask> tasks;
+
+    private final OfficeException[] failures;
+
+    public BatchOfficeTask(List< ? extends OfficeTask> tasks)
+    {
+        this.tasks = Collections.unmodifiableList(new ArrayList<OfficeTask>(tasks));
+        this.failures = new OfficeException[tasks.size()];
+    }
+
+    public List<OfficeTask> getTasks()
+    {
+        return this.tasks;
+    }
+
+    /**
+     * @return the highest priority of the tasks in the batch
+     */
+    public OfficeTaskPriority getPriority()
+    {
+        OfficeTaskPriority priority = OfficeTaskPriority.LOW;
+        for (OfficeTask task : this.tasks) {
+            if (task.getPriority().compareTo(priority) < 0) {
+                priority = task.getPriority();
+            }
+        }
+        return priority;
+    }
+
+    /**
+     * @return the latest deadline of the tasks, or {@link #NO_DEADLINE} if any of them has none; each task is still
+     *         held to its own deadline when it runs
+     */
+    public long getDeadline()
+    {
+        long deadline = NO_DEADLINE;
+        for (OfficeTask task : this.tasks) {
+            if (task.getDeadline() == NO_DEADLINE) {
+                return NO_DEADLINE;
+            }
+            // nanoTime values may overflow, so compare their difference
+            if (deadline == NO_DEADLINE || task.getDeadline() - deadline > 0) {
+                deadline = task.getDeadline();
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * @return the highest estimated cost of the tasks, so that a batch of many small documents is not taken for a heavy
+     *         task
+     */
+    public long getEstimatedCost()
+    {
+        long cost = 0;
+        for (OfficeTask task : this.tasks) {
+            cost = Math.max(cost, task.getEstimatedCost());
+        }
+        return cost;
+    }
+
+    /**
+     * Executes the tasks in order with the given context. Used by office managers that don't know about batches.
+     */
+    public void execute(OfficeContext context)
+    {
+        for (int i = 0; i < this.tasks.size(); i++) {
+            try {
+                this.tasks.get(i).execute(context);
+            } catch (Throwable throwable) {
+                setFailure(i, throwable);
+            }
+        }
+    }
+
+    /**
+     * @param index the index of a task in the batch
+     * @return why the task failed, or <code>null</code> if it succeeded
+     */
+    public OfficeException getFailure(int index)
+    {
+        synchronized (this.failures) {
+            return this.failures[index];
+        }
+    }
+
+    /**
+     * @return whether any task of the batch failed
+     */
+    public boolean hasFailures()
+    {
+        synchronized (this.failures) {
+            for (OfficeException failure : this.failures) {
+                if (failure != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    void setFailure(int index, Throwable throwable)
+    {
+        OfficeException failure = OfficeUtils.toOfficeException(throwable);
+        synchronized (this.failures) {
+            this.failures[index] = failure;
+        }
+    }
+}
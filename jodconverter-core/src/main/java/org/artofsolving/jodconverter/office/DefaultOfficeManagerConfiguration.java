@@ -13,8 +13,10 @@
 package org.artofsolving.jodconverter.office;
 
 import java.io.File;
+import java.util.logging.Logger;
 
 import org.artofsolving.jodconverter.process.LinuxProcessManager;
+import org.artofsolving.jodconverter.process.ProcFsProcessManager;
 import org.artofsolving.jodconverter.process.ProcessManager;
 import org.artofsolving.jodconverter.process.PureJavaProcessManager;
 import org.artofsolving.jodconverter.process.SigarProcessManager;
@@ -40,14 +42,38 @@
 
     private long taskQueueTimeout = 30000L; // 30 seconds
 
+    private int taskQueueCapacity = Integer.MAX_VALUE; // unbounded
+
+    private int reservedHighPriorityProcesses = 0;
+
+    private long heavyTaskThreshold = 0; // 0: no task is heavy
+
+    private int maxHeavyTasks = 1;
+
     private long taskExecutionTimeout = 120000L; // 2 minutes
 
     private int maxTasksPerProcess = 200;
 
+    private int minProcesses = 0; // 0: not elastic
+
+    private int maxProcesses = 0;
+
+    private long processIdleTimeout = ProcessPoolOfficeManagerSettings.DEFAULT_PROCESS_IDLE_TIMEOUT;
+
+    private boolean standbyProcess = false;
+
+    private int startupQuorum = 0; // 0: all processes
+
+    private boolean reuseProfileDir = false;
+
     private long retryTimeout = DEFAULT_RETRY_TIMEOUT;
 
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
     private ProcessManager processManager = null; // lazily initialised
 
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
     public DefaultOfficeManagerConfiguration setOfficeHome(String officeHome) throws NullPointerException,
         IllegalArgumentException
     {
@@ -134,12 +160,89 @@ public DefaultOfficeManagerConfiguration setWorkDir(File workDir)
         return this;
     }
 
+    /**
+     * Enables the profile cache. When an office process exits cleanly, e.g. when it is recycled after
+     * <code>maxTasksPerProcess</code> tasks, its profile dir is kept and reused on the next start instead of being
+     * deleted and copied again. The first cleanly closed profile is also kept as a snapshot in the work dir, and new
+     * profile dirs are copied from it, so that office doesn't have to initialise a fresh profile on each first start.
+     * <p>
+     * Profiles of processes that crashed or had to be killed are always discarded. Defaults to <code>false</code>.
+     * 
+     * @param reuseProfileDir whether to reuse office profile dirs
+     * @return this configuration
+     */
+    public DefaultOfficeManagerConfiguration setReuseProfileDir(boolean reuseProfileDir)
+    {
+        this.reuseProfileDir = reuseProfileDir;
+        return this;
+    }
+
     public DefaultOfficeManagerConfiguration setTaskQueueTimeout(long taskQueueTimeout)
     {
         this.taskQueueTimeout = taskQueueTimeout;
         return this;
     }
 
+    /**
+     * Sets the maximum number of tasks that may wait for an office process. When all processes are busy and the queue
+     * is full, new tasks are rejected immediately with a {@link TaskRejectedException} instead of waiting for
+     * <code>taskQueueTimeout</code>.
+     * <p>
+     * Defaults to no limit. Use 0 to reject any task that cannot be started right away.
+     * 
+     * @param taskQueueCapacity the maximum number of waiting tasks
+     * @return this configuration
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public DefaultOfficeManagerConfiguration setTaskQueueCapacity(int taskQueueCapacity)
+        throws IllegalArgumentException
+    {
+        checkArgument("taskQueueCapacity", taskQueueCapacity >= 0, "must not be negative");
+        this.taskQueueCapacity = taskQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the number of office processes kept available for {@link OfficeTaskPriority#HIGH} tasks. Tasks with a lower
+     * priority are only started when more than this number of office processes are idle.
+     * <p>
+     * Defaults to 0, i.e. priorities only affect the order in which waiting tasks are started.
+     * 
+     * @param reservedHighPriorityProcesses the number of office processes reserved for high priority tasks
+     * @return this configuration
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public DefaultOfficeManagerConfiguration setReservedHighPriorityProcesses(int reservedHighPriorityProcesses)
+        throws IllegalArgumentException
+    {
+        checkArgument("reservedHighPriorityProcesses", reservedHighPriorityProcesses >= 0, "must not be negative");
+        this.reservedHighPriorityProcesses = reservedHighPriorityProcesses;
+        return this;
+    }
+
+    /**
+     * Limits the number of office processes running heavy tasks at the same time, so that conversions of large
+     * documents can't hold up the whole pool. A task is heavy when its {@link OfficeTask#getEstimatedCost() estimated
+     * cost}, the size of the input document in kilobytes for conversions, reaches the given threshold.
+     * <p>
+     * At least one office process is kept for light tasks, so the number is lowered to one less than the number of
+     * office processes if needed; a single office process runs heavy tasks too. Disabled by default.
+     * 
+     * @param heavyTaskThreshold the estimated cost from which a task is heavy, or 0 to disable the limit
+     * @param maxHeavyTasks the number of heavy tasks that may run at the same time
+     * @return this configuration
+     * @throws IllegalArgumentException if the threshold is negative or the number is not positive
+     */
+    public DefaultOfficeManagerConfiguration setHeavyTasks(long heavyTaskThreshold, int maxHeavyTasks)
+        throws IllegalArgumentException
+    {
+        checkArgument("heavyTaskThreshold", heavyTaskThreshold >= 0, "must not be negative");
+        checkArgument("maxHeavyTasks", maxHeavyTasks > 0, "must be positive");
+        this.heavyTaskThreshold = heavyTaskThreshold;
+        this.maxHeavyTasks = maxHeavyTasks;
+        return this;
+    }
+
     public DefaultOfficeManagerConfiguration setTaskExecutionTimeout(long taskExecutionTimeout)
     {
         this.taskExecutionTimeout = taskExecutionTimeout;
@@ -152,11 +255,83 @@ public DefaultOfficeManagerConfiguration setMaxTasksPerProcess(int maxTasksPerPr
         return this;
     }
 
+    /**
+     * Makes the pool elastic: it starts <code>minProcesses</code> office processes and starts more, up to
+     * <code>maxProcesses</code>, while tasks are waiting. Processes idle for longer than the process idle timeout are
+     * stopped again.
+     * <p>
+     * The configured port numbers (or pipe names) are used first; further processes listen on the following port
+     * numbers (or on the first pipe name with a <code>_1</code>, <code>_2</code>, ... suffix).
+     * 
+     * @param minProcesses the number of office processes kept running
+     * @param maxProcesses the maximum number of office processes
+     * @return this configuration
+     * @throws IllegalArgumentException if minProcesses is lower than 1 or greater than maxProcesses
+     */
+    public DefaultOfficeManagerConfiguration setElasticPool(int minProcesses, int maxProcesses)
+        throws IllegalArgumentException
+    {
+        checkArgument("minProcesses", minProcesses > 0, "must be positive");
+        checkArgument("maxProcesses", maxProcesses >= minProcesses, "must not be lower than minProcesses");
+        this.minProcesses = minProcesses;
+        this.maxProcesses = maxProcesses;
+        return this;
+    }
+
+    /**
+     * Sets how long an office process of an elastic pool may stay idle before it is stopped. Defaults to 5 minutes.
+     * 
+     * @param processIdleTimeout in milliseconds
+     * @return this configuration
+     * @see #setElasticPool(int, int)
+     */
+    public DefaultOfficeManagerConfiguration setProcessIdleTimeout(long processIdleTimeout)
+        throws IllegalArgumentException
+    {
+        checkArgument("processIdleTimeout", processIdleTimeout > 0, "must be positive");
+        this.processIdleTimeout = processIdleTimeout;
+        return this;
+    }
+
+    /**
+     * Keeps one additional office process started and connected in the background. When an office process reaches
+     * <code>maxTasksPerProcess</code>, it is swapped with the standby one and restarted in the background, instead of
+     * being restarted while a task waits for it.
+     * <p>
+     * The standby process uses the port number (or pipe name) following the ones of the pool.
+     * 
+     * @param standbyProcess whether to keep a standby office process
+     * @return this configuration
+     */
+    public DefaultOfficeManagerConfiguration setStandbyProcess(boolean standbyProcess)
+    {
+        this.standbyProcess = standbyProcess;
+        return this;
+    }
+
+    /**
+     * Office processes are started concurrently; this sets how many of them must be connected before
+     * {@link OfficeManager#start()} returns. The remaining ones join the pool as soon as they are ready.
+     * <p>
+     * Defaults to all of them.
+     * 
+     * @param startupQuorum the number of office processes to wait for
+     * @return this configuration
+     * @throws IllegalArgumentException if the quorum is lower than 1
+     */
+    public DefaultOfficeManagerConfiguration setStartupQuorum(int startupQuorum) throws IllegalArgumentException
+    {
+        checkArgument("startupQuorum", startupQuorum > 0, "must be positive");
+        this.startupQuorum = startupQuorum;
+        return this;
+    }
+
     /**
      * Provide a specific {@link ProcessManager} implementation
      * <p>
      * The default is to use {@link SigarProcessManager} if sigar.jar is available in the classpath, otherwise
-     * {@link LinuxProcessManager} on Linux and {@link PureJavaProcessManager} on other platforms.
+     * {@link ProcFsProcessManager} (or {@link LinuxProcessManager} if <tt>/proc</tt> can't be read) on Linux and
+     * {@link PureJavaProcessManager} on other platforms.
      * 
      * @param processManager
      * @return this configuration
@@ -182,6 +357,21 @@ public DefaultOfficeManagerConfiguration setRetryTimeout(long retryTimeout)
         return this;
     }
 
+    /**
+     * Sets how long to wait between attempts to connect to a starting office process. Defaults to
+     * {@link RetryPolicy#DEFAULT}, an exponential backoff starting at 50 ms.
+     * 
+     * @param retryPolicy the retry policy
+     * @return this configuration
+     * @throws NullPointerException if the policy is null
+     */
+    public DefaultOfficeManagerConfiguration setRetryPolicy(RetryPolicy retryPolicy) throws NullPointerException
+    {
+        checkArgumentNotNull("retryPolicy", retryPolicy);
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
     public OfficeManager buildOfficeManager() throws IllegalStateException
     {
         if (this.officeHome == null) {
@@ -205,15 +395,68 @@ public OfficeManager buildOfficeManager() throws IllegalStateException
 
         int numInstances =
             this.connectionProtocol == OfficeConnectionProtocol.PIPE ? this.pipeNames.length : this.portNumbers.length;
+        int minInstances = numInstances;
+        if (this.maxProcesses > 0) {
+            minInstances = this.minProcesses;
+            numInstances = this.maxProcesses;
+        }
+        if (this.reservedHighPriorityProcesses >= numInstances) {
+            throw new IllegalStateException("reservedHighPriorityProcesses must be lower than the number of office "
+                + "processes: " + numInstances);
+        }
+        int maxHeavyTasks = this.maxHeavyTasks;
+        if (this.heavyTaskThreshold > 0 && maxHeavyTasks >= numInstances) {
+            maxHeavyTasks = Math.max(1, numInstances - 1);
+            this.logger.warning(String.format("maxHeavyTasks %d is not lower than the number of office processes %d; "
+                + "using %d", this.maxHeavyTasks, numInstances, maxHeavyTasks));
+        }
         UnoUrl[] unoUrls = new UnoUrl[numInstances];
         for (int i = 0; i < numInstances; i++) {
-            unoUrls[i] =
-                (this.connectionProtocol == OfficeConnectionProtocol.PIPE) ? UnoUrl.pipe(this.pipeNames[i]) : UnoUrl
-                    .socket(this.portNumbers[i]);
+            unoUrls[i] = getUnoUrl(i);
+        }
+        ProcessPoolOfficeManagerSettings settings = new ProcessPoolOfficeManagerSettings(unoUrls);
+        settings.setOfficeHome(this.officeHome);
+        settings.setRunAsArgs(this.runAsArgs);
+        settings.setTemplateProfileDir(this.templateProfileDir);
+        settings.setWorkDir(this.workDir);
+        settings.setProcessManager(this.processManager);
+        settings.setRetryTimeout(this.retryTimeout);
+        settings.setRetryPolicy(this.retryPolicy);
+        settings.setTaskQueueTimeout(this.taskQueueTimeout);
+        settings.setTaskQueueCapacity(this.taskQueueCapacity);
+        settings.setReservedHighPriorityProcesses(this.reservedHighPriorityProcesses);
+        settings.setHeavyTaskThreshold(this.heavyTaskThreshold);
+        settings.setMaxHeavyTasks(maxHeavyTasks);
+        settings.setTaskExecutionTimeout(this.taskExecutionTimeout);
+        settings.setMaxTasksPerProcess(this.maxTasksPerProcess);
+        settings.setMinProcesses(minInstances);
+        settings.setProcessIdleTimeout(this.processIdleTimeout);
+        settings.setStartupQuorum(this.startupQuorum);
+        settings.setReuseProfileDir(this.reuseProfileDir);
+        if (this.standbyProcess) {
+            settings.setStandbyUnoUrl(getUnoUrl(numInstances));
+        }
+        return new ProcessPoolOfficeManager(settings);
+    }
+
+    /**
+     * @param index the index of the office process
+     * @return the configured port number or pipe name for that process, or the next free one for processes beyond
+     *         the configured ones
+     */
+    private UnoUrl getUnoUrl(int index)
+    {
+        if (this.connectionProtocol == OfficeConnectionProtocol.PIPE) {
+            if (index < this.pipeNames.length) {
+                return UnoUrl.pipe(this.pipeNames[index]);
+            }
+            return UnoUrl.pipe(this.pipeNames[0] + "_" + (index - this.pipeNames.length + 1));
+        } else {
+            if (index < this.portNumbers.length) {
+                return UnoUrl.socket(this.portNumbers[index]);
+            }
+            return UnoUrl.socket(this.portNumbers[this.portNumbers.length - 1] + index - this.portNumbers.length + 1);
         }
-        return new ProcessPoolOfficeManager(this.officeHome, unoUrls, this.runAsArgs, this.templateProfileDir,
-            this.workDir, this.retryTimeout, this.taskQueueTimeout, this.taskExecutionTimeout, this.maxTasksPerProcess,
-            this.processManager);
     }
 
     private ProcessManager findBestProcessManager()
@@ -221,7 +464,8 @@ private ProcessManager findBestProcessManager()
         if (isSigarAvailable()) {
             return new SigarProcessManager();
         } else if (PlatformUtils.isLinux()) {
-            LinuxProcessManager processManager = new LinuxProcessManager();
+            LinuxProcessManager processManager =
+                ProcFsProcessManager.isAvailable() ? new ProcFsProcessManager() : new LinuxProcessManager();
             if (this.runAsArgs != null) {
                 processManager.setRunAsArgs(this.runAsArgs);
             }
@@ -13,6 +13,11 @@
 package org.artofsolving.jodconverter.office;
 
 import java.net.ConnectException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link OfficeManager} implementation that connects to an external Office process.
@@ -37,6 +42,12 @@ class ExternalOfficeManager implements OfficeManager
 
     private final boolean connectOnStart;
 
+    /**
+     * Runs submitted tasks; its single thread is only kept alive while there is work to do.
+     */
+    private final ExecutorService taskExecutor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("OfficeTaskThread"));
+
     /**
      * @param unoUrl
      * @param connectOnStart should a connection be attempted on {@link #start()}? Default is <em>true</em>. If
@@ -76,6 +87,17 @@ public void execute(OfficeTask task) throws OfficeException
         }
     }
 
+    public CompletableFuture<Void> submit(final OfficeTask task)
+    {
+        return CompletableFuture.runAsync(new Runnable()
+        {
+            public void run()
+            {
+                execute(task);
+            }
+        }, this.taskExecutor);
+    }
+
     private void connect()
     {
         try {
@@ -12,10 +12,15 @@
 //
 package org.artofsolving.jodconverter.office;
 
+import java.io.IOException;
 import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +31,8 @@
 {
     private static final Integer EXIT_CODE_NEW_INSTALLATION = Integer.valueOf(81);
 
+    private static final int SOCKET_PROBE_TIMEOUT = 100;
+
     private final ManagedOfficeProcessSettings settings;
 
     private final OfficeProcess process;
@@ -42,7 +49,7 @@ public ManagedOfficeProcess(ManagedOfficeProcessSettings settings) throws Office
         this.process =
             new OfficeProcess(settings.getOfficeHome(), settings.getUnoUrl(), settings.getRunAsArgs(), settings
                 .getTemplateProfileDir(), settings.getWorkDir(), settings
-                .getProcessManager());
+                .getProcessManager(), settings.isReuseProfileDir());
         this.connection = new OfficeConnection(settings.getUnoUrl());
     }
 
@@ -131,13 +138,17 @@ public void run()
     private void doStartProcessAndConnect() throws OfficeException
     {
         try {
+            long start = System.currentTimeMillis();
             this.process.start();
-            new Retryable()
+            Retryable retryable = new Retryable()
             {
                 @Override
                 protected void attempt() throws TemporaryException, Exception
                 {
                     try {
+                        if (!isAcceptingConnections()) {
+                            throw new ConnectException("not accepting connections yet");
+                        }
                         ManagedOfficeProcess.this.connection.connect();
                     } catch (ConnectException connectException) {
                         Integer exitCode = ManagedOfficeProcess.this.process.getExitCode();
@@ -157,12 +168,63 @@ protected void attempt() throws TemporaryException, Exception
                         }
                     }
                 }
-            }.execute(this.settings.getRetryInterval(), this.settings.getRetryTimeout());
+            };
+            retryable.execute(this.settings.getRetryPolicy(), this.settings.getRetryTimeout());
+            this.logger.info(String.format("connected after %d attempts in %d ms", retryable.getAttempts(),
+                System.currentTimeMillis() - start));
+            watchExit(this.process.getExitFuture());
         } catch (Exception exception) {
             throw new OfficeException("could not establish connection", exception);
         }
     }
 
+    /**
+     * Drops the connection as soon as the office process exits, rather than when the UNO bridge notices it, so that a
+     * crashed process is restarted straight away through the usual lost connection handling.
+     */
+    private void watchExit(final CompletableFuture<Integer> exitFuture)
+    {
+        exitFuture.thenAccept(new Consumer<Integer>()
+        {
+            public void accept(Integer exitCode)
+            {
+                if (exitFuture == ManagedOfficeProcess.this.process.getExitFuture()
+                    && ManagedOfficeProcess.this.connection.isConnected()) {
+                    ManagedOfficeProcess.this.logger.warning("process exited with code " + exitCode
+                        + " while connected");
+                    ManagedOfficeProcess.this.connection.disconnect();
+                }
+            }
+        });
+    }
+
+    /**
+     * Cheaply checks whether the office process accepts connections yet, before setting up a UNO bridge.
+     * 
+     * @return <code>false</code> if the socket of the office process is not open yet; always <code>true</code> for
+     *         pipe connections, which can't be probed
+     */
+    private boolean isAcceptingConnections()
+    {
+        int port = this.settings.getUnoUrl().getPort();
+        if (port < 0) {
+            return true;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress("127.0.0.1", port), SOCKET_PROBE_TIMEOUT);
+            return true;
+        } catch (IOException ioException) {
+            return false;
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ioException) {
+                // ignore
+            }
+        }
+    }
+
     private void doStopProcess()
     {
         try {
@@ -180,20 +242,21 @@ private void doStopProcess()
 
     private void doEnsureProcessExited() throws OfficeException
     {
+        boolean cleanExit = false;
         try {
-            int exitCode = this.process.getExitCode(this.settings.getRetryInterval(), this.settings.getRetryTimeout());
+            int exitCode = this.process.getExitCode(this.settings.getRetryTimeout());
             this.logger.info("process exited with code " + exitCode);
+            cleanExit = exitCode == 0;
         } catch (RetryTimeoutException retryTimeoutException) {
             doTerminateProcess();
         }
-        this.process.deleteProfileDir();
+        this.process.releaseProfileDir(cleanExit);
     }
 
     private void doTerminateProcess() throws OfficeException
     {
         try {
-            int exitCode =
-                this.process.forciblyTerminate(this.settings.getRetryInterval(), this.settings.getRetryTimeout());
+            int exitCode = this.process.forciblyTerminate(this.settings.getRetryTimeout());
             this.logger.info("process forcibly terminated with code " + exitCode);
         } catch (Exception exception) {
             throw new OfficeException("could not terminate process", exception);
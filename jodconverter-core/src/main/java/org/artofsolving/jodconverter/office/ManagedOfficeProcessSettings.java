@@ -19,8 +19,6 @@
 
 class ManagedOfficeProcessSettings
 {
-    public static final long DEFAULT_RETRY_INTERVAL = 250L;
-
     private final UnoUrl unoUrl;
 
     private File officeHome = OfficeUtils.getDefaultOfficeHome();
@@ -35,7 +33,9 @@
 
     private long retryTimeout = DefaultOfficeManagerConfiguration.DEFAULT_RETRY_TIMEOUT;
 
-    private long retryInterval = DEFAULT_RETRY_INTERVAL;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    private boolean reuseProfileDir;
 
     public ManagedOfficeProcessSettings(UnoUrl unoUrl)
     {
@@ -107,13 +107,23 @@ public void setRetryTimeout(long retryTimeout)
         this.retryTimeout = retryTimeout;
     }
 
-    public long getRetryInterval()
+    public RetryPolicy getRetryPolicy()
+    {
+        return this.retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy)
+    {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public boolean isReuseProfileDir()
     {
-        return this.retryInterval;
+        return this.reuseProfileDir;
     }
 
-    public void setRetryInterval(long retryInterval)
+    public void setReuseProfileDir(boolean reuseProfileDir)
     {
-        this.retryInterval = retryInterval;
+        this.reuseProfileDir = reuseProfileDir;
     }
 }
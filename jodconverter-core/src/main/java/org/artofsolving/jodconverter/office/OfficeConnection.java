@@ -14,8 +14,14 @@
 
 import java.net.ConnectException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.sun.star.beans.XPropertySet;
@@ -29,12 +35,21 @@
 import com.sun.star.lang.XComponent;
 import com.sun.star.lang.XEventListener;
 import com.sun.star.lang.XMultiComponentFactory;
+import com.sun.star.lang.XMultiServiceFactory;
+import com.sun.star.uno.AnyConverter;
 import com.sun.star.uno.XComponentContext;
 
 class OfficeConnection implements OfficeContext
 {
     private static AtomicInteger bridgeIndex = new AtomicInteger();
 
+    /**
+     * Services that are singletons or stateless in office, so that the same instance can be used for every task
+     * instead of asking the remote service manager each time.
+     */
+    private static final Collection<String> CACHED_SERVICES = new HashSet<String>(Arrays.asList(
+        OfficeUtils.SERVICE_DESKTOP, OfficeUtils.SERVICE_GRAPHIC_PROVIDER, OfficeUtils.SERVICE_CONFIGURATION_PROVIDER));
+
     private final UnoUrl unoUrl;
 
     private XComponent bridgeComponent;
@@ -43,6 +58,13 @@ class OfficeConnection implements OfficeContext
 
     private XComponentContext componentContext;
 
+    /** The instances of {@link #CACHED_SERVICES} obtained through the current bridge. */
+    private final Map<String, Object> services = new ConcurrentHashMap<String, Object>();
+
+    private volatile String officeName;
+
+    private volatile String officeVersion;
+
     private final List<OfficeConnectionEventListener> connectionEventListeners =
         new ArrayList<OfficeConnectionEventListener>();
 
@@ -54,6 +76,7 @@ public void disposing(EventObject event)
         {
             if (OfficeConnection.this.connected) {
                 OfficeConnection.this.connected = false;
+                OfficeConnection.this.services.clear();
                 OfficeConnection.this.logger.info(String.format("disconnected: '%s'", OfficeConnection.this.unoUrl));
                 OfficeConnectionEvent connectionEvent = new OfficeConnectionEvent(OfficeConnection.this);
                 for (OfficeConnectionEventListener listener : OfficeConnection.this.connectionEventListeners) {
@@ -98,8 +121,11 @@ public void connect() throws ConnectException
             XPropertySet properties = OfficeUtils.cast(XPropertySet.class, this.serviceManager);
             this.componentContext =
                 OfficeUtils.cast(XComponentContext.class, properties.getPropertyValue("DefaultContext"));
+            this.services.clear();
+            readProductInfo();
             this.connected = true;
-            this.logger.info(String.format("connected: '%s'", this.unoUrl));
+            this.logger.info(String.format("connected: '%s' (%s %s)", this.unoUrl, this.officeName,
+                this.officeVersion));
             OfficeConnectionEvent connectionEvent = new OfficeConnectionEvent(this);
             for (OfficeConnectionEventListener listener : this.connectionEventListeners) {
                 listener.connected(connectionEvent);
@@ -112,6 +138,27 @@ public void connect() throws ConnectException
         }
     }
 
+    /**
+     * Reads the office product name and version once, since the configuration lookup takes several bridge calls.
+     */
+    private void readProductInfo()
+    {
+        this.officeName = null;
+        this.officeVersion = null;
+        try {
+            XMultiServiceFactory provider =
+                OfficeUtils.cast(XMultiServiceFactory.class, getService(OfficeUtils.SERVICE_CONFIGURATION_PROVIDER));
+            XPropertySet product =
+                OfficeUtils.cast(XPropertySet.class, provider.createInstanceWithArguments(
+                    "com.sun.star.configuration.ConfigurationAccess",
+                    new Object[] {OfficeUtils.property("nodepath", "/org.openoffice.Setup/Product")}));
+            this.officeName = AnyConverter.toString(product.getPropertyValue("ooName"));
+            this.officeVersion = AnyConverter.toString(product.getPropertyValue("ooSetupVersion"));
+        } catch (Exception exception) {
+            this.logger.log(Level.WARNING, "could not read the office product name and version", exception);
+        }
+    }
+
     public boolean isConnected()
     {
         return this.connected;
@@ -125,8 +172,19 @@ public synchronized void disconnect()
 
     public Object getService(String serviceName)
     {
+        boolean cached = CACHED_SERVICES.contains(serviceName);
+        if (cached) {
+            Object service = this.services.get(serviceName);
+            if (service != null) {
+                return service;
+            }
+        }
         try {
-            return this.serviceManager.createInstanceWithContext(serviceName, this.componentContext);
+            Object service = this.serviceManager.createInstanceWithContext(serviceName, this.componentContext);
+            if (cached && service != null) {
+                this.services.put(serviceName, service);
+            }
+            return service;
         } catch (Exception exception) {
             throw new OfficeException(String.format("failed to obtain service '%s'", serviceName), exception);
         }
@@ -137,4 +195,16 @@ public XComponentContext getComponentContext()
     {
         return this.componentContext;
     }
+
+    @Override
+    public String getOfficeName()
+    {
+        return this.officeName;
+    }
+
+    @Override
+    public String getOfficeVersion()
+    {
+        return this.officeVersion;
+    }
 }
@@ -12,6 +12,8 @@
 //
 package org.artofsolving.jodconverter.office;
 
+import org.artofsolving.jodconverter.util.Info;
+
 import com.sun.star.uno.XComponentContext;
 
 public interface OfficeContext
@@ -19,4 +21,20 @@
     Object getService(String serviceName);
 
     XComponentContext getComponentContext();
+
+    /**
+     * @return the office product name, e.g. "LibreOffice", or <code>null</code> if it can't be determined
+     */
+    default String getOfficeName()
+    {
+        return Info.getOfficeName(getComponentContext());
+    }
+
+    /**
+     * @return the short office product version, e.g. "6.1", or <code>null</code> if it can't be determined
+     */
+    default String getOfficeVersion()
+    {
+        return Info.getOfficeVersionShort(getComponentContext());
+    }
 }
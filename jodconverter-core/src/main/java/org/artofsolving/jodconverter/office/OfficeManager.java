@@ -12,6 +12,8 @@
 //
 package org.artofsolving.jodconverter.office;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * An OfficeManager knows how to execute {@link OfficeTask}s.
  * <p>
@@ -21,6 +23,19 @@
 {
     void execute(OfficeTask task) throws OfficeException;
 
+    /**
+     * Schedules the given task for execution without waiting for it to complete.
+     * <p>
+     * The returned future completes when the task has been executed, or exceptionally (usually with an
+     * {@link OfficeException}) if it failed or could not be executed. Cancelling the future removes the task from the
+     * queue if it has not started yet.
+     * 
+     * @param task the task to execute
+     * @return a future representing the pending completion of the task
+     * @throws IllegalStateException if this office manager is not running
+     */
+    CompletableFuture<Void> submit(OfficeTask task) throws IllegalStateException;
+
     void start() throws OfficeException;
 
     void stop() throws OfficeException;
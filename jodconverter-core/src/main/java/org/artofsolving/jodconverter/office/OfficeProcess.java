@@ -21,6 +21,12 @@
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
@@ -30,6 +36,10 @@
 
 class OfficeProcess
 {
+    /** Threads blocked in {@link Process#waitFor()}, one per running office process. */
+    private static final ExecutorService EXIT_WATCHER =
+        Executors.newCachedThreadPool(new NamedThreadFactory("OfficeProcessExitThread"));
+
     private final File officeHome;
 
     private final UnoUrl unoUrl;
@@ -40,16 +50,32 @@
 
     private final File instanceProfileDir;
 
+    private final boolean reuseProfileDir;
+
     private final ProcessManager processManager;
 
     private Process process;
 
+    /** Completed with the exit code as soon as the current process terminates. */
+    private volatile CompletableFuture<Integer> exitFuture;
+
     private long pid = PID_UNKNOWN;
 
     private final Logger logger = Logger.getLogger(getClass().getName());
 
     public OfficeProcess(File officeHome, UnoUrl unoUrl, String[] runAsArgs, File templateProfileDir, File workDir,
         ProcessManager processManager)
+    {
+        this(officeHome, unoUrl, runAsArgs, templateProfileDir, workDir, processManager, false);
+    }
+
+    /**
+     * @param reuseProfileDir whether to keep the profile dir when the process exits cleanly and reuse it for the next
+     *            start, and to create new profile dirs from a snapshot of the first initialised one instead of letting
+     *            office initialise each of them
+     */
+    public OfficeProcess(File officeHome, UnoUrl unoUrl, String[] runAsArgs, File templateProfileDir, File workDir,
+        ProcessManager processManager, boolean reuseProfileDir)
     {
         this.officeHome = officeHome;
         this.unoUrl = unoUrl;
@@ -57,6 +83,7 @@ public OfficeProcess(File officeHome, UnoUrl unoUrl, String[] runAsArgs, File te
         this.templateProfileDir = templateProfileDir;
         this.instanceProfileDir = getInstanceProfileDir(workDir, unoUrl);
         this.processManager = processManager;
+        this.reuseProfileDir = reuseProfileDir;
     }
 
     public void start() throws IOException
@@ -98,7 +125,11 @@ public void start(boolean restart) throws IOException
         this.logger.info(String.format("starting process with acceptString '%s' and profileDir '%s'", this.unoUrl,
             this.instanceProfileDir));
         this.process = processBuilder.start();
-        this.pid = this.processManager.findPid(processQuery);
+        this.exitFuture = watchExit(this.process);
+        this.pid = this.processManager.getPid(this.process);
+        if (this.pid == PID_UNKNOWN) {
+            this.pid = this.processManager.findPid(processQuery);
+        }
         if (this.pid == PID_NOT_FOUND) {
             throw new IllegalStateException(String.format(
                 "process with acceptString '%s' started but its pid could not be found",
@@ -113,21 +144,83 @@ private File getInstanceProfileDir(File workDir, UnoUrl unoUrl)
         return new File(workDir, dirName);
     }
 
+    /**
+     * @return the profile snapshot for the current office installation and template; computed on each start so that a
+     *         snapshot made by an older office version is not used once office is upgraded in place
+     */
+    private File getProfileSnapshotDir()
+    {
+        // one snapshot per office installation, version and template; upgrades replace the executable
+        String key =
+            String.valueOf(this.officeHome) + File.pathSeparator + String.valueOf(this.templateProfileDir)
+                + File.pathSeparator + OfficeUtils.getOfficeExecutable(this.officeHome).lastModified()
+                + File.pathSeparator + new File(this.officeHome, "program").lastModified();
+        return new File(this.instanceProfileDir.getParentFile(), ".jodconverter_profile_"
+            + Integer.toHexString(key.hashCode()));
+    }
+
     private void prepareInstanceProfileDir() throws OfficeException
     {
         if (this.instanceProfileDir.exists()) {
+            if (this.reuseProfileDir && !getLockFile().exists()) {
+                this.logger.fine(String.format("reusing profile dir '%s'", this.instanceProfileDir));
+                return;
+            }
             this.logger.warning(String.format("profile dir '%s' already exists; deleting", this.instanceProfileDir));
             deleteProfileDir();
         }
-        if (this.templateProfileDir != null) {
+        File sourceProfileDir = this.templateProfileDir;
+        File profileSnapshotDir = getProfileSnapshotDir();
+        if (this.reuseProfileDir && profileSnapshotDir.isDirectory()) {
+            sourceProfileDir = profileSnapshotDir;
+        }
+        if (sourceProfileDir != null) {
             try {
-                FileUtils.copyDirectory(this.templateProfileDir, this.instanceProfileDir);
+                FileUtils.copyDirectory(sourceProfileDir, this.instanceProfileDir);
             } catch (IOException ioException) {
                 throw new OfficeException("failed to create profileDir", ioException);
             }
         }
     }
 
+    /**
+     * Cleans up the profile dir once the process has exited: it is deleted, unless profile reuse is enabled and the
+     * process exited cleanly, in which case it is kept for the next start and used to create the profile snapshot if
+     * there is none yet.
+     * 
+     * @param cleanExit whether the process terminated normally
+     */
+    public void releaseProfileDir(boolean cleanExit)
+    {
+        if (!this.reuseProfileDir || !cleanExit) {
+            deleteProfileDir();
+            return;
+        }
+        getLockFile().delete();
+        File profileSnapshotDir = getProfileSnapshotDir();
+        if (!profileSnapshotDir.exists()) {
+            File snapshotDir =
+                new File(profileSnapshotDir.getParentFile(), profileSnapshotDir.getName() + ".tmp."
+                    + System.nanoTime());
+            try {
+                FileUtils.copyDirectory(this.instanceProfileDir, snapshotDir);
+                // the rename makes the snapshot visible to other processes only once it is complete
+                if (snapshotDir.renameTo(profileSnapshotDir)) {
+                    this.logger.info("created profile snapshot '" + profileSnapshotDir + "'");
+                }
+            } catch (IOException ioException) {
+                this.logger.warning("could not create profile snapshot: " + ioException.getMessage());
+            } finally {
+                FileUtils.deleteQuietly(snapshotDir);
+            }
+        }
+    }
+
+    private File getLockFile()
+    {
+        return new File(this.instanceProfileDir, ".lock");
+    }
+
     public void deleteProfileDir()
     {
         if (this.instanceProfileDir != null) {
@@ -185,26 +278,29 @@ public boolean isRunning()
         return getExitCode() == null;
     }
 
-    private class ExitCodeRetryable extends Retryable
+    private CompletableFuture<Integer> watchExit(final Process process)
     {
-
-        private int exitCode;
-
-        @Override
-        protected void attempt() throws TemporaryException, Exception
+        final CompletableFuture<Integer> exitFuture = new CompletableFuture<Integer>();
+        EXIT_WATCHER.execute(new Runnable()
         {
-            try {
-                this.exitCode = OfficeProcess.this.process.exitValue();
-            } catch (IllegalThreadStateException illegalThreadStateException) {
-                throw new TemporaryException(illegalThreadStateException);
+            public void run()
+            {
+                try {
+                    exitFuture.complete(process.waitFor());
+                } catch (InterruptedException interruptedException) {
+                    exitFuture.completeExceptionally(interruptedException);
+                }
             }
-        }
-
-        public int getExitCode()
-        {
-            return this.exitCode;
-        }
+        });
+        return exitFuture;
+    }
 
+    /**
+     * @return a future completed with the exit code of the current process as soon as it terminates
+     */
+    public CompletableFuture<Integer> getExitFuture()
+    {
+        return this.exitFuture;
     }
 
     public Integer getExitCode()
@@ -216,20 +312,31 @@ public Integer getExitCode()
         }
     }
 
-    public int getExitCode(long retryInterval, long retryTimeout) throws RetryTimeoutException
+    /**
+     * Waits for the process to terminate.
+     * 
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return the exit code
+     * @throws RetryTimeoutException if the process is still running after the timeout
+     */
+    public int getExitCode(long timeout) throws RetryTimeoutException
     {
+        Integer exitCode = getExitCode();
+        if (exitCode != null) {
+            return exitCode;
+        }
         try {
-            ExitCodeRetryable retryable = new ExitCodeRetryable();
-            retryable.execute(retryInterval, retryTimeout);
-            return retryable.getExitCode();
-        } catch (RetryTimeoutException retryTimeoutException) {
-            throw retryTimeoutException;
-        } catch (Exception exception) {
-            throw new OfficeException("could not get process exit code", exception);
+            return this.exitFuture.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException timeoutException) {
+            throw new RetryTimeoutException(timeoutException);
+        } catch (ExecutionException executionException) {
+            throw new OfficeException("could not get process exit code", executionException.getCause());
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted while waiting for the process to exit", interruptedException);
         }
     }
 
-    public int forciblyTerminate(long retryInterval, long retryTimeout) throws IOException, RetryTimeoutException
+    public int forciblyTerminate(long timeout) throws IOException, RetryTimeoutException
     {
         this.logger.info("trying to forcibly terminate process: '" + this.unoUrl + "'"
             + (this.pid != PID_UNKNOWN ? " (pid " + this.pid + ")" : ""));
@@ -243,6 +350,6 @@ public int forciblyTerminate(long retryInterval, long retryTimeout) throws IOExc
         } else {
             this.processManager.kill(this.process, this.pid);
         }
-        return getExitCode(retryInterval, retryTimeout);
+        return getExitCode(timeout);
     }
 }
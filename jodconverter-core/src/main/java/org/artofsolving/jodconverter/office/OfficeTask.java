@@ -14,5 +14,43 @@
 
 public interface OfficeTask
 {
+    /** The {@link #getDeadline() deadline} of tasks that have none. */
+    long NO_DEADLINE = Long.MAX_VALUE;
+
     void execute(OfficeContext context) throws OfficeException;
+
+    /**
+     * @return the priority used to order this task against other tasks waiting for an office process
+     */
+    default OfficeTaskPriority getPriority()
+    {
+        return OfficeTaskPriority.NORMAL;
+    }
+
+    /**
+     * @return a rough estimate of the work this task represents, used to keep expensive tasks from occupying the
+     *         whole pool; 0 if unknown
+     */
+    default long getEstimatedCost()
+    {
+        return 0;
+    }
+
+    /**
+     * @return how long this task may run, in milliseconds, or 0 to use the <code>taskExecutionTimeout</code> of the
+     *         office manager
+     */
+    default long getExecutionTimeout()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the time, as given by {@link System#nanoTime()}, by which this task must be done, including the time
+     *         spent waiting for an office process; {@link #NO_DEADLINE} if there is none
+     */
+    default long getDeadline()
+    {
+        return NO_DEADLINE;
+    }
 }
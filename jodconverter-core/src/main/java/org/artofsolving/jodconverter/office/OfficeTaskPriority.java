@@ -0,0 +1,29 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Priority of an {@link OfficeTask}. When all office processes are busy, waiting tasks are dispatched in priority
+ * order, and first-come first-served within the same priority.
+ */
+public enum OfficeTaskPriority
+{
+    /** Interactive work, e.g. a user waiting for a preview. */
+    HIGH,
+
+    /** The default priority. */
+    NORMAL,
+
+    /** Background work such as bulk conversions. */
+    LOW
+}
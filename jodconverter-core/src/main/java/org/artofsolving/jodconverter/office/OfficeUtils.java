@@ -13,7 +13,14 @@
 package org.artofsolving.jodconverter.office;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.artofsolving.jodconverter.util.PlatformUtils;
 
@@ -24,6 +31,10 @@
 {
     public static final String SERVICE_DESKTOP = "com.sun.star.frame.Desktop";
 
+    public static final String SERVICE_GRAPHIC_PROVIDER = "com.sun.star.graphic.GraphicProvider";
+
+    public static final String SERVICE_CONFIGURATION_PROVIDER = "com.sun.star.configuration.ConfigurationProvider";
+
     private OfficeUtils()
     {
         throw new AssertionError("utility class must not be instantiated");
@@ -58,6 +69,81 @@ public static PropertyValue[] toUnoProperties(Map<String, ? > properties)
         return propertyValues;
     }
 
+    /**
+     * Merges UNO properties without modifying the given arrays, so that precomputed properties can be shared.
+     * 
+     * @param properties the base properties
+     * @param overrides properties that replace the base properties with the same name, or are added to them
+     * @return the merged properties, which may be the base array itself if there is nothing to merge
+     */
+    public static PropertyValue[] merge(PropertyValue[] properties, PropertyValue... overrides)
+    {
+        if (overrides.length == 0) {
+            return properties;
+        }
+        if (properties.length == 0) {
+            return overrides;
+        }
+        List<PropertyValue> merged = new ArrayList<PropertyValue>(properties.length + overrides.length);
+        for (PropertyValue property : properties) {
+            boolean overridden = false;
+            for (PropertyValue override : overrides) {
+                if (override.Name.equals(property.Name)) {
+                    overridden = true;
+                    break;
+                }
+            }
+            if (!overridden) {
+                merged.add(property);
+            }
+        }
+        for (PropertyValue override : overrides) {
+            merged.add(override);
+        }
+        return merged.toArray(new PropertyValue[merged.size()]);
+    }
+
+    /**
+     * Waits for the given task future to complete, unwrapping the failure cause into an {@link OfficeException}.
+     */
+    static void await(Future< ? > future) throws OfficeException
+    {
+        try {
+            future.get();
+        } catch (ExecutionException executionException) {
+            throw toOfficeException(executionException.getCause());
+        } catch (CancellationException cancellationException) {
+            throw new OfficeException("task failed", cancellationException);
+        } catch (InterruptedException interruptedException) {
+            future.cancel(true);
+            throw new OfficeException("interrupted", interruptedException);
+        }
+    }
+
+    /**
+     * @return the time left before the deadline of the task, in milliseconds, or {@link Long#MAX_VALUE} if it has no
+     *         deadline
+     */
+    public static long getRemainingTime(OfficeTask task)
+    {
+        if (task.getDeadline() == OfficeTask.NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+        // System.nanoTime() is not affected by changes of the wall clock
+        return TimeUnit.NANOSECONDS.toMillis(task.getDeadline() - System.nanoTime());
+    }
+
+    static OfficeException toOfficeException(Throwable cause)
+    {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof OfficeException) {
+            return (OfficeException) cause;
+        }
+        return new OfficeException("task failed", cause);
+    }
+
     public static String toUrl(File file)
     {
         String path = file.toURI().getRawPath();
@@ -13,10 +13,14 @@
 //
 package org.artofsolving.jodconverter.office;
 
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 
 class PooledOfficeManager implements OfficeManager
@@ -27,11 +31,13 @@ class PooledOfficeManager implements OfficeManager
 
     private final SuspendableThreadPoolExecutor taskExecutor;
 
+    private final ScheduledThreadPoolExecutor timeoutExecutor;
+
     private volatile boolean stopping = false;
 
-    private int taskCount;
+    private volatile int taskCount;
 
-    private Future< ? > currentTask;
+    private volatile CompletableFuture<Void> currentTask;
 
     private final Logger logger = Logger.getLogger(getClass().getName());
 
@@ -70,43 +76,138 @@ public PooledOfficeManager(PooledOfficeManagerSettings settings)
         this.managedOfficeProcess = new ManagedOfficeProcess(settings);
         this.managedOfficeProcess.getConnection().addConnectionEventListener(this.connectionEventListener);
         this.taskExecutor = new SuspendableThreadPoolExecutor(new NamedThreadFactory("OfficeTaskThread"));
+        this.timeoutExecutor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("OfficeTaskTimeoutThread"));
+        this.timeoutExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    public void execute(OfficeTask task) throws OfficeException
+    {
+        OfficeUtils.await(submit(task));
     }
 
-    public void execute(final OfficeTask task) throws OfficeException
+    public CompletableFuture<Void> submit(final OfficeTask task)
     {
-        Future< ? > futureTask = this.taskExecutor.submit(new Runnable()
+        if (task instanceof BatchOfficeTask) {
+            return submitBatch((BatchOfficeTask) task);
+        }
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        long executionTimeout = task.getExecutionTimeout();
+        if (executionTimeout <= 0) {
+            executionTimeout = this.settings.getTaskExecutionTimeout();
+        }
+        // never let the task run past its deadline
+        long remainingTime = OfficeUtils.getRemainingTime(task);
+        if (remainingTime <= 0) {
+            result.completeExceptionally(new OfficeException("task deadline expired before execution",
+                new TimeoutException()));
+            return result;
+        }
+        final Future< ? > futureTask = this.taskExecutor.submit(new Runnable()
         {
             public void run()
             {
+                if (result.isDone()) {
+                    // cancelled or timed out while waiting for the office process
+                    return;
+                }
                 if (PooledOfficeManager.this.settings.getMaxTasksPerProcess() > 0
                     && ++PooledOfficeManager.this.taskCount == PooledOfficeManager.this.settings
                         .getMaxTasksPerProcess() + 1) {
                     PooledOfficeManager.this.logger.info(String.format(
                         "reached limit of %d maxTasksPerProcess: restarting", PooledOfficeManager.this.settings
                             .getMaxTasksPerProcess()));
-                    PooledOfficeManager.this.taskExecutor.setAvailable(false);
-                    PooledOfficeManager.this.stopping = true;
-                    PooledOfficeManager.this.managedOfficeProcess.restartAndWait();
+                    restart();
                     // FIXME taskCount will be 0 rather than 1 at this point
                 }
-                task.execute(PooledOfficeManager.this.managedOfficeProcess.getConnection());
+                try {
+                    task.execute(PooledOfficeManager.this.managedOfficeProcess.getConnection());
+                    result.complete(null);
+                } catch (Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
+            }
+        });
+        final ScheduledFuture< ? > timeout = this.timeoutExecutor.schedule(new Runnable()
+        {
+            public void run()
+            {
+                if (result.completeExceptionally(new OfficeException("task did not complete within timeout",
+                    new TimeoutException()))) {
+                    PooledOfficeManager.this.managedOfficeProcess.restartDueToTaskTimeout();
+                }
+            }
+        }, Math.min(executionTimeout, remainingTime), TimeUnit.MILLISECONDS);
+        result.whenComplete(new BiConsumer<Void, Throwable>()
+        {
+            public void accept(Void value, Throwable throwable)
+            {
+                timeout.cancel(false);
+                if (result.isCancelled()) {
+                    futureTask.cancel(true);
+                }
             }
         });
-        this.currentTask = futureTask;
+        this.currentTask = result;
+        return result;
+    }
+
+    private CompletableFuture<Void> submitBatch(BatchOfficeTask batch)
+    {
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        final AtomicReference<CompletableFuture<Void>> currentItem = new AtomicReference<CompletableFuture<Void>>();
+        result.whenComplete(new BiConsumer<Void, Throwable>()
+        {
+            public void accept(Void value, Throwable throwable)
+            {
+                CompletableFuture<Void> itemResult = currentItem.get();
+                if (result.isCancelled() && itemResult != null) {
+                    itemResult.cancel(true);
+                }
+            }
+        });
+        submitBatchItem(batch, 0, result, currentItem);
+        return result;
+    }
+
+    /**
+     * Submits a task of the batch once the previous one is done, so that each task gets its own execution timeout.
+     */
+    private void submitBatchItem(final BatchOfficeTask batch, final int index, final CompletableFuture<Void> result,
+        final AtomicReference<CompletableFuture<Void>> currentItem)
+    {
+        if (result.isDone()) {
+            // cancelled
+            return;
+        }
+        if (index == batch.getTasks().size()) {
+            result.complete(null);
+            return;
+        }
+        final CompletableFuture<Void> itemResult;
         try {
-            futureTask.get(this.settings.getTaskExecutionTimeout(), TimeUnit.MILLISECONDS);
-        } catch (TimeoutException timeoutException) {
-            this.managedOfficeProcess.restartDueToTaskTimeout();
-            throw new OfficeException("task did not complete within timeout", timeoutException);
-        } catch (ExecutionException executionException) {
-            if (executionException.getCause() instanceof OfficeException) {
-                throw (OfficeException) executionException.getCause();
-            } else {
-                throw new OfficeException("task failed", executionException.getCause());
+            itemResult = submit(batch.getTasks().get(index));
+        } catch (RuntimeException exception) {
+            // e.g. rejected because the manager is stopping
+            for (int i = index; i < batch.getTasks().size(); i++) {
+                batch.setFailure(i, exception);
             }
-        } catch (Exception exception) {
-            throw new OfficeException("task failed", exception);
+            result.complete(null);
+            return;
         }
+        currentItem.set(itemResult);
+        if (result.isCancelled()) {
+            itemResult.cancel(true);
+        }
+        itemResult.whenComplete(new BiConsumer<Void, Throwable>()
+        {
+            public void accept(Void value, Throwable throwable)
+            {
+                if (throwable != null) {
+                    batch.setFailure(index, throwable);
+                }
+                submitBatchItem(batch, index + 1, result, currentItem);
+            }
+        });
     }
 
     public void start() throws OfficeException
@@ -114,11 +215,28 @@ public void start() throws OfficeException
         this.managedOfficeProcess.startAndWait();
     }
 
+    /**
+     * Restarts the office process and waits until it is connected again, e.g. to recycle a process that has reached
+     * its <code>maxTasksPerProcess</code> while it is not in use.
+     * 
+     * @throws OfficeException if the office process can't be restarted
+     */
+    public void restart() throws OfficeException
+    {
+        this.taskExecutor.setAvailable(false);
+        this.stopping = true;
+        this.managedOfficeProcess.restartAndWait();
+    }
+
     public void stop() throws OfficeException
     {
         this.taskExecutor.setAvailable(false);
         this.stopping = true;
         this.taskExecutor.shutdownNow();
+        this.timeoutExecutor.shutdownNow();
+        if (this.currentTask != null) {
+            this.currentTask.cancel(true);
+        }
         this.managedOfficeProcess.stopAndWait();
     }
 
@@ -126,4 +244,17 @@ public boolean isRunning()
     {
         return this.managedOfficeProcess.isConnected();
     }
+
+    /**
+     * @return <code>true</code> if the next task would trigger a restart because of <code>maxTasksPerProcess</code>
+     */
+    boolean isExhausted()
+    {
+        return this.settings.getMaxTasksPerProcess() > 0 && this.taskCount >= this.settings.getMaxTasksPerProcess();
+    }
+
+    UnoUrl getUnoUrl()
+    {
+        return this.settings.getUnoUrl();
+    }
 }
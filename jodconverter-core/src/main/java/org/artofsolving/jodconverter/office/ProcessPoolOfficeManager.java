@@ -12,103 +12,657 @@
 //
 package org.artofsolving.jodconverter.office;
 
-import java.io.File;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.artofsolving.jodconverter.process.ProcessManager;
-
+/**
+ * {@link OfficeManager} that dispatches tasks to a pool of {@link PooledOfficeManager}s.
+ * <p>
+ * Submitted tasks are handed to an idle office manager straight away or queued until one is released, so callers are
+ * never blocked while waiting for an office process. The queue is FIFO and bounded: once it holds
+ * <code>taskQueueCapacity</code> tasks, new submissions fail immediately with a {@link TaskRejectedException}.
+ * <p>
+ * Waiting tasks are kept in one lane per {@link OfficeTaskPriority} and a released office manager always takes the
+ * oldest task of the highest non-empty lane. Optionally, a number of office managers can be reserved for
+ * {@link OfficeTaskPriority#HIGH} tasks: lower priority tasks only get an office manager when more than that many are
+ * idle.
+ * <p>
+ * Tasks whose estimated cost reaches <code>heavyTaskThreshold</code>, typically conversions of large documents, may
+ * only occupy <code>maxHeavyTasks</code> office managers at a time. While that many heavy tasks are running, released
+ * office managers skip the waiting heavy tasks and take the next light ones, so small conversions are not stuck behind
+ * large ones.
+ * <p>
+ * The pool is elastic when <code>minProcesses</code> is lower than the number of UNO URLs: it starts with
+ * <code>minProcesses</code> office processes, starts another one in the background whenever tasks are waiting that
+ * no starting process will take, and stops processes that have been idle for longer than
+ * <code>processIdleTimeout</code>, down to <code>minProcesses</code>.
+ * <p>
+ * When a standby UNO URL is configured, one additional office process is kept started and connected in the
+ * background. An office manager that has reached its <code>maxTasksPerProcess</code> is swapped with the standby one
+ * when it is released, and is then restarted in the background to become the next standby, so no task has to wait for
+ * the restart.
+ * <p>
+ * Tasks with a {@link OfficeTask#getDeadline() deadline} fail as soon as it passes: straight away if it already has
+ * when they are submitted, while waiting in the queue, or while running.
+ * <p>
+ * The initial office processes are started concurrently. {@link #start()} returns as soon as
+ * <code>startupQuorum</code> of them are connected; the others join the pool when they are ready.
+ */
 class ProcessPoolOfficeManager implements OfficeManager
 {
-    private final BlockingQueue<PooledOfficeManager> pool;
+    private final ProcessPoolOfficeManagerSettings settings;
+
+    /** Most recently released first, so that surplus office managers stay idle long enough to be stopped. */
+    private final Deque<PooledOfficeManager> idleManagers = new LinkedList<PooledOfficeManager>();
+
+    private final Map<PooledOfficeManager, Long> idleSince = new HashMap<PooledOfficeManager, Long>();
 
+    /** The task lanes, also used to guard the idle managers and the pool slots. */
+    private final Map<OfficeTaskPriority, Queue<PendingTask>> taskQueues =
+        new EnumMap<OfficeTaskPriority, Queue<PendingTask>>(OfficeTaskPriority.class);
+
+    /** One slot per UNO URL, <code>null</code> while no office process runs on it. */
     private final PooledOfficeManager[] pooledManagers;
 
-    private final long taskQueueTimeout;
+    /** The UNO URL of each slot; slots exchange URLs with the standby office manager when swapped. */
+    private final UnoUrl[] slotUrls;
+
+    /** Slots whose office manager is being stopped; they are only reused once its office process has exited. */
+    private final boolean[] stoppingSlots;
+
+    private PooledOfficeManager standbyManager;
+
+    private boolean standbyReady;
+
+    private int startingManagers;
+
+    private int runningHeavyTasks;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final ExecutorService launcher;
 
     private volatile boolean running = false;
 
     private final Logger logger = Logger.getLogger(ProcessPoolOfficeManager.class.getName());
 
-    public ProcessPoolOfficeManager(File officeHome, UnoUrl[] unoUrls, String[] runAsArgs, File templateProfileDir,
-        File workDir,
-        long retryTimeout, long taskQueueTimeout, long taskExecutionTimeout, int maxTasksPerProcess,
-        ProcessManager processManager)
-    {
-        this.taskQueueTimeout = taskQueueTimeout;
-        this.pool = new ArrayBlockingQueue<PooledOfficeManager>(unoUrls.length);
-        this.pooledManagers = new PooledOfficeManager[unoUrls.length];
-        for (int i = 0; i < unoUrls.length; i++) {
-            PooledOfficeManagerSettings settings = new PooledOfficeManagerSettings(unoUrls[i]);
-            settings.setRunAsArgs(runAsArgs);
-            settings.setTemplateProfileDir(templateProfileDir);
-            settings.setWorkDir(workDir);
-            settings.setOfficeHome(officeHome);
-            settings.setRetryTimeout(retryTimeout);
-            settings.setTaskExecutionTimeout(taskExecutionTimeout);
-            settings.setMaxTasksPerProcess(maxTasksPerProcess);
-            settings.setProcessManager(processManager);
-            this.pooledManagers[i] = new PooledOfficeManager(settings);
-        }
-        this.logger.info("ProcessManager implementation is " + processManager.getClass().getSimpleName());
+    public ProcessPoolOfficeManager(ProcessPoolOfficeManagerSettings settings)
+    {
+        this.settings = settings;
+        for (OfficeTaskPriority priority : OfficeTaskPriority.values()) {
+            this.taskQueues.put(priority, new LinkedList<PendingTask>());
+        }
+        this.pooledManagers = new PooledOfficeManager[settings.getUnoUrls().length];
+        this.slotUrls = settings.getUnoUrls().clone();
+        this.stoppingSlots = new boolean[this.pooledManagers.length];
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("OfficeSchedulerThread"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.launcher = Executors.newCachedThreadPool(new NamedThreadFactory("OfficeLauncherThread"));
+        this.logger.info("ProcessManager implementation is "
+            + settings.getProcessManager().getClass().getSimpleName());
     }
 
     public synchronized void start() throws OfficeException
     {
-        for (int i = 0; i < this.pooledManagers.length; i++) {
-            this.pooledManagers[i].start();
-            releaseManager(this.pooledManagers[i]);
+        final int processCount = this.settings.getMinProcesses();
+        final int quorum =
+            this.settings.getStartupQuorum() > 0 ? Math.min(this.settings.getStartupQuorum(), processCount)
+                : processCount;
+        final CompletableFuture<Void> quorumReached = new CompletableFuture<Void>();
+        final AtomicInteger startedCount = new AtomicInteger();
+        final AtomicInteger failedCount = new AtomicInteger();
+        List<PooledOfficeManager> managers = new ArrayList<PooledOfficeManager>();
+        synchronized (this.taskQueues) {
+            for (int i = 0; i < processCount; i++) {
+                this.pooledManagers[i] = createManager(this.slotUrls[i]);
+                this.startingManagers++;
+                managers.add(this.pooledManagers[i]);
+            }
+        }
+        for (PooledOfficeManager manager : managers) {
+            startManager(manager).whenComplete(new BiConsumer<Void, Throwable>()
+            {
+                public void accept(Void value, Throwable throwable)
+                {
+                    if (throwable == null) {
+                        if (startedCount.incrementAndGet() == quorum) {
+                            quorumReached.complete(null);
+                        }
+                    } else if (failedCount.incrementAndGet() > processCount - quorum) {
+                        quorumReached.completeExceptionally(throwable);
+                    }
+                }
+            });
+        }
+        try {
+            quorumReached.get();
+        } catch (ExecutionException executionException) {
+            stop();
+            throw new OfficeException("could not start " + quorum + " of " + processCount + " office processes",
+                executionException.getCause());
+        } catch (InterruptedException interruptedException) {
+            stop();
+            throw new OfficeException("interrupted while starting office processes", interruptedException);
+        }
+        this.logger.info(startedCount.get() + " of " + processCount + " office processes started");
+        if (this.settings.getStandbyUnoUrl() != null) {
+            this.standbyManager = createManager(this.settings.getStandbyUnoUrl());
+            prepareStandbyManager(this.standbyManager, false);
+        }
+        if (this.settings.getMinProcesses() < this.pooledManagers.length) {
+            long period = this.settings.getProcessIdleTimeout();
+            this.scheduler.scheduleAtFixedRate(new Runnable()
+            {
+                public void run()
+                {
+                    stopIdleManagers();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
         }
         this.running = true;
     }
 
     public void execute(OfficeTask task) throws IllegalStateException, OfficeException
+    {
+        OfficeUtils.await(submit(task));
+    }
+
+    public CompletableFuture<Void> submit(OfficeTask task) throws IllegalStateException
     {
         if (!this.running) {
             throw new IllegalStateException("this OfficeManager is currently stopped");
         }
-        PooledOfficeManager manager = null;
-        try {
-            manager = acquireManager();
-            if (manager == null) {
-                throw new OfficeException("no office manager available");
-            }
-            manager.execute(task);
-        } finally {
+        final PendingTask pendingTask = new PendingTask(task);
+        final long remainingTime = OfficeUtils.getRemainingTime(task);
+        if (remainingTime <= 0) {
+            pendingTask.result.completeExceptionally(new OfficeException("task deadline expired before submission",
+                new TimeoutException()));
+            return pendingTask.result;
+        }
+        PooledOfficeManager manager;
+        PooledOfficeManager additionalManager = null;
+        synchronized (this.taskQueues) {
+            manager = isHeavyTaskAllowed(pendingTask) ? pollIdleManager(pendingTask.priority) : null;
             if (manager != null) {
-                releaseManager(manager);
+                taskStarted(pendingTask);
+            } else {
+                int queueDepth = getQueueDepth();
+                if (queueDepth >= this.settings.getTaskQueueCapacity()) {
+                    this.logger.warning("rejecting task: " + queueDepth + " tasks already waiting");
+                    pendingTask.result.completeExceptionally(new TaskRejectedException(
+                        "no office manager available and task queue is full (" + queueDepth + " tasks waiting)"));
+                    return pendingTask.result;
+                }
+                this.taskQueues.get(pendingTask.priority).add(pendingTask);
+                final boolean deadlineFirst = remainingTime < this.settings.getTaskQueueTimeout();
+                pendingTask.queueTimeout = this.scheduler.schedule(new Runnable()
+                {
+                    public void run()
+                    {
+                        if (removeQueuedTask(pendingTask)) {
+                            pendingTask.result.completeExceptionally(deadlineFirst ? new OfficeException(
+                                "task deadline expired while waiting for an office manager", new TimeoutException())
+                                : new OfficeException("no office manager available"));
+                        }
+                    }
+                }, Math.min(remainingTime, this.settings.getTaskQueueTimeout()), TimeUnit.MILLISECONDS);
+                if (queueDepth >= this.startingManagers) {
+                    additionalManager = reserveAdditionalManager();
+                }
             }
         }
+        pendingTask.result.whenComplete(new BiConsumer<Void, Throwable>()
+        {
+            public void accept(Void value, Throwable throwable)
+            {
+                if (pendingTask.result.isCancelled()) {
+                    pendingTask.cancel();
+                }
+            }
+        });
+        if (manager != null) {
+            dispatch(manager, pendingTask);
+        }
+        if (additionalManager != null) {
+            this.logger.info("all office processes busy; starting another one on " + additionalManager.getUnoUrl());
+            startManager(additionalManager);
+        }
+        return pendingTask.result;
     }
 
     public synchronized void stop() throws OfficeException
     {
         this.running = false;
         this.logger.info("stopping");
-        this.pool.clear();
-        for (int i = 0; i < this.pooledManagers.length; i++) {
-            this.pooledManagers[i].stop();
+        List<PooledOfficeManager> managers = new ArrayList<PooledOfficeManager>();
+        synchronized (this.taskQueues) {
+            this.idleManagers.clear();
+            this.idleSince.clear();
+            for (int i = 0; i < this.pooledManagers.length; i++) {
+                if (this.pooledManagers[i] != null) {
+                    managers.add(this.pooledManagers[i]);
+                    this.pooledManagers[i] = null;
+                }
+            }
+            if (this.standbyManager != null) {
+                managers.add(this.standbyManager);
+                this.standbyManager = null;
+                this.standbyReady = false;
+            }
+            for (Queue<PendingTask> taskQueue : this.taskQueues.values()) {
+                for (PendingTask pendingTask : taskQueue) {
+                    pendingTask.result.completeExceptionally(new OfficeException("office manager stopped"));
+                }
+                taskQueue.clear();
+            }
+        }
+        this.scheduler.shutdownNow();
+        this.launcher.shutdownNow();
+        for (PooledOfficeManager manager : managers) {
+            manager.stop();
         }
         this.logger.info("stopped");
     }
 
-    private PooledOfficeManager acquireManager()
+    /**
+     * Creates an office manager for the pool; package-private so that tests can use stub office managers.
+     */
+    PooledOfficeManager createManager(UnoUrl unoUrl)
+    {
+        PooledOfficeManagerSettings managerSettings = new PooledOfficeManagerSettings(unoUrl);
+        managerSettings.setRunAsArgs(this.settings.getRunAsArgs());
+        managerSettings.setTemplateProfileDir(this.settings.getTemplateProfileDir());
+        managerSettings.setWorkDir(this.settings.getWorkDir());
+        managerSettings.setOfficeHome(this.settings.getOfficeHome());
+        managerSettings.setRetryTimeout(this.settings.getRetryTimeout());
+        managerSettings.setRetryPolicy(this.settings.getRetryPolicy());
+        managerSettings.setTaskExecutionTimeout(this.settings.getTaskExecutionTimeout());
+        managerSettings.setMaxTasksPerProcess(this.settings.getMaxTasksPerProcess());
+        managerSettings.setProcessManager(this.settings.getProcessManager());
+        managerSettings.setReuseProfileDir(this.settings.isReuseProfileDir());
+        return new PooledOfficeManager(managerSettings);
+    }
+
+    /**
+     * Takes a free slot for an additional office manager; the caller must hold the task queue lock. Slots whose office
+     * manager is still being stopped are not free yet.
+     * 
+     * @return the new office manager, or <code>null</code> if no slot is free
+     */
+    private PooledOfficeManager reserveAdditionalManager()
+    {
+        for (int i = 0; i < this.pooledManagers.length; i++) {
+            if (this.pooledManagers[i] == null && !this.stoppingSlots[i]) {
+                this.pooledManagers[i] = createManager(this.slotUrls[i]);
+                this.startingManagers++;
+                return this.pooledManagers[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts an office manager that has been put in a slot in the background, and releases it to the pool once it is
+     * connected, unless the pool has been stopped in the meantime.
+     * 
+     * @return a future that completes once the office manager is started
+     */
+    private CompletableFuture<Void> startManager(final PooledOfficeManager manager)
+    {
+        final CompletableFuture<Void> started = new CompletableFuture<Void>();
+        this.launcher.execute(new Runnable()
+        {
+            public void run()
+            {
+                try {
+                    manager.start();
+                } catch (OfficeException officeException) {
+                    ProcessPoolOfficeManager.this.logger.log(Level.WARNING, "could not start office process on "
+                        + manager.getUnoUrl(), officeException);
+                    synchronized (ProcessPoolOfficeManager.this.taskQueues) {
+                        ProcessPoolOfficeManager.this.startingManagers--;
+                        removeManager(manager);
+                    }
+                    started.completeExceptionally(officeException);
+                    return;
+                }
+                boolean inPool;
+                synchronized (ProcessPoolOfficeManager.this.taskQueues) {
+                    ProcessPoolOfficeManager.this.startingManagers--;
+                    inPool = getSlot(manager) >= 0;
+                }
+                if (inPool) {
+                    releaseManager(manager);
+                }
+                started.complete(null);
+            }
+        });
+        return started;
+    }
+
+    private void stopIdleManagers()
+    {
+        final List<PooledOfficeManager> managers = new ArrayList<PooledOfficeManager>();
+        final List<Integer> slots = new ArrayList<Integer>();
+        long now = System.currentTimeMillis();
+        synchronized (this.taskQueues) {
+            while (getProcessCount() > this.settings.getMinProcesses() && !this.idleManagers.isEmpty()) {
+                PooledOfficeManager manager = this.idleManagers.peekLast();
+                if (now - this.idleSince.get(manager) < this.settings.getProcessIdleTimeout()) {
+                    break;
+                }
+                this.idleManagers.pollLast();
+                this.idleSince.remove(manager);
+                int slot = getSlot(manager);
+                removeManager(manager);
+                // the new office process would use the same UNO URL
+                this.stoppingSlots[slot] = true;
+                managers.add(manager);
+                slots.add(slot);
+            }
+        }
+        for (int i = 0; i < managers.size(); i++) {
+            final PooledOfficeManager manager = managers.get(i);
+            final int slot = slots.get(i);
+            this.logger.info("stopping idle office process on " + manager.getUnoUrl());
+            this.launcher.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try {
+                        manager.stop();
+                    } finally {
+                        slotStopped(slot);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Frees the slot of an office manager that has been stopped, and starts another office manager in it straight
+     * away if tasks are waiting that no starting one will take.
+     */
+    private void slotStopped(int slot)
+    {
+        PooledOfficeManager additionalManager = null;
+        synchronized (this.taskQueues) {
+            this.stoppingSlots[slot] = false;
+            if (this.running && getQueueDepth() > this.startingManagers) {
+                additionalManager = reserveAdditionalManager();
+            }
+        }
+        if (additionalManager != null) {
+            this.logger.info("tasks waiting; starting another office process on " + additionalManager.getUnoUrl());
+            startManager(additionalManager);
+        }
+    }
+
+    private void removeManager(PooledOfficeManager manager)
+    {
+        int slot = getSlot(manager);
+        if (slot >= 0) {
+            this.pooledManagers[slot] = null;
+        }
+    }
+
+    private int getSlot(PooledOfficeManager manager)
+    {
+        for (int i = 0; i < this.pooledManagers.length; i++) {
+            if (this.pooledManagers[i] == manager) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Starts (or restarts) the standby office manager in the background and marks it ready once it is connected.
+     */
+    private void prepareStandbyManager(final PooledOfficeManager manager, final boolean restart)
     {
+        this.launcher.execute(new Runnable()
+        {
+            public void run()
+            {
+                try {
+                    if (restart) {
+                        manager.restart();
+                    } else {
+                        manager.start();
+                    }
+                } catch (OfficeException officeException) {
+                    ProcessPoolOfficeManager.this.logger.log(Level.WARNING,
+                        "could not prepare standby office process on " + manager.getUnoUrl(), officeException);
+                    return;
+                }
+                synchronized (ProcessPoolOfficeManager.this.taskQueues) {
+                    if (ProcessPoolOfficeManager.this.standbyManager == manager) {
+                        ProcessPoolOfficeManager.this.standbyReady = true;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Puts the ready standby office manager in the slot of the given exhausted one, which is restarted in the
+     * background to become the next standby.
+     * 
+     * @return the office manager to use in place of the given one
+     */
+    private PooledOfficeManager swapWithStandbyManager(PooledOfficeManager manager)
+    {
+        PooledOfficeManager standby;
+        synchronized (this.taskQueues) {
+            int slot = getSlot(manager);
+            if (!this.running || !this.standbyReady || slot < 0) {
+                return manager;
+            }
+            standby = this.standbyManager;
+            this.pooledManagers[slot] = standby;
+            this.slotUrls[slot] = standby.getUnoUrl();
+            this.standbyManager = manager;
+            this.standbyReady = false;
+        }
+        this.logger.info("office process on " + manager.getUnoUrl() + " reached maxTasksPerProcess; replacing it with "
+            + "standby office process on " + standby.getUnoUrl());
+        prepareStandbyManager(manager, true);
+        return standby;
+    }
+
+    private void dispatch(final PooledOfficeManager manager, final PendingTask pendingTask)
+    {
+        if (pendingTask.queueTimeout != null) {
+            pendingTask.queueTimeout.cancel(false);
+        }
+        CompletableFuture<Void> managerResult;
         try {
-            return this.pool.poll(this.taskQueueTimeout, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException interruptedException) {
-            throw new OfficeException("interrupted", interruptedException);
+            managerResult = manager.submit(pendingTask.task);
+        } catch (RuntimeException exception) {
+            // e.g. the manager has been stopped in the meantime
+            pendingTask.result.completeExceptionally(exception);
+            taskFinished(pendingTask);
+            releaseManager(manager);
+            return;
+        }
+        pendingTask.managerResult = managerResult;
+        if (pendingTask.result.isCancelled()) {
+            managerResult.cancel(true);
         }
+        managerResult.whenComplete(new BiConsumer<Void, Throwable>()
+        {
+            public void accept(Void value, Throwable throwable)
+            {
+                taskFinished(pendingTask);
+                releaseManager(manager);
+                if (throwable == null) {
+                    pendingTask.result.complete(null);
+                } else {
+                    pendingTask.result.completeExceptionally(OfficeUtils.toOfficeException(throwable));
+                }
+            }
+        });
     }
 
     private void releaseManager(PooledOfficeManager manager)
     {
-        try {
-            this.pool.put(manager);
-        } catch (InterruptedException interruptedException) {
-            throw new OfficeException("interrupted", interruptedException);
+        if (manager.isExhausted()) {
+            manager = swapWithStandbyManager(manager);
+        }
+        PendingTask nextTask = null;
+        synchronized (this.taskQueues) {
+            for (OfficeTaskPriority priority : OfficeTaskPriority.values()) {
+                if (priority != OfficeTaskPriority.HIGH
+                    && this.idleManagers.size() < this.settings.getReservedHighPriorityProcesses()) {
+                    // keep this manager for high priority work
+                    break;
+                }
+                nextTask = pollQueuedTask(this.taskQueues.get(priority));
+                if (nextTask != null) {
+                    taskStarted(nextTask);
+                    break;
+                }
+            }
+            if (nextTask == null) {
+                this.idleManagers.addFirst(manager);
+                this.idleSince.put(manager, System.currentTimeMillis());
+                return;
+            }
+        }
+        dispatch(manager, nextTask);
+    }
+
+    private PooledOfficeManager pollIdleManager(OfficeTaskPriority priority)
+    {
+        if (priority != OfficeTaskPriority.HIGH
+            && this.idleManagers.size() <= this.settings.getReservedHighPriorityProcesses()) {
+            return null;
+        }
+        PooledOfficeManager manager = this.idleManagers.pollFirst();
+        this.idleSince.remove(manager);
+        return manager;
+    }
+
+    /**
+     * @return the oldest task of the lane that may be started now, skipping heavy tasks while the heavy task limit is
+     *         reached
+     */
+    private PendingTask pollQueuedTask(Queue<PendingTask> taskQueue)
+    {
+        Iterator<PendingTask> iterator = taskQueue.iterator();
+        while (iterator.hasNext()) {
+            PendingTask nextTask = iterator.next();
+            if (nextTask.result.isDone()) {
+                iterator.remove();
+            } else if (isHeavyTaskAllowed(nextTask)) {
+                iterator.remove();
+                return nextTask;
+            }
+        }
+        return null;
+    }
+
+    private boolean isHeavyTaskAllowed(PendingTask pendingTask)
+    {
+        return !pendingTask.heavy || this.runningHeavyTasks < this.settings.getMaxHeavyTasks();
+    }
+
+    /**
+     * Accounts for a task about to be dispatched; the caller must hold the task queue lock.
+     */
+    private void taskStarted(PendingTask pendingTask)
+    {
+        if (pendingTask.heavy) {
+            this.runningHeavyTasks++;
+        }
+    }
+
+    /**
+     * Accounts for a completed task. A heavy task leaves room for the next waiting one, which an idle office manager
+     * takes straight away if its own office manager picks another task.
+     */
+    private void taskFinished(PendingTask pendingTask)
+    {
+        if (!pendingTask.heavy) {
+            return;
+        }
+        PooledOfficeManager manager = null;
+        PendingTask nextTask = null;
+        synchronized (this.taskQueues) {
+            this.runningHeavyTasks--;
+            if (this.idleManagers.size() > this.settings.getReservedHighPriorityProcesses()) {
+                for (OfficeTaskPriority priority : OfficeTaskPriority.values()) {
+                    nextTask = pollQueuedTask(this.taskQueues.get(priority));
+                    if (nextTask != null) {
+                        break;
+                    }
+                }
+            }
+            if (nextTask != null) {
+                taskStarted(nextTask);
+                manager = this.idleManagers.pollFirst();
+                this.idleSince.remove(manager);
+            }
+        }
+        if (manager != null) {
+            dispatch(manager, nextTask);
+        }
+    }
+
+    private boolean removeQueuedTask(PendingTask pendingTask)
+    {
+        synchronized (this.taskQueues) {
+            return this.taskQueues.get(pendingTask.priority).remove(pendingTask);
+        }
+    }
+
+    /**
+     * @return the number of tasks currently waiting for an office manager
+     */
+    int getQueueDepth()
+    {
+        synchronized (this.taskQueues) {
+            int queueDepth = 0;
+            for (Queue<PendingTask> taskQueue : this.taskQueues.values()) {
+                queueDepth += taskQueue.size();
+            }
+            return queueDepth;
+        }
+    }
+
+    /**
+     * @return the number of office processes currently running or starting
+     */
+    int getProcessCount()
+    {
+        synchronized (this.taskQueues) {
+            int processCount = 0;
+            for (int i = 0; i < this.pooledManagers.length; i++) {
+                if (this.pooledManagers[i] != null) {
+                    processCount++;
+                }
+            }
+            return processCount;
         }
     }
 
@@ -116,4 +670,40 @@ public boolean isRunning()
     {
         return this.running;
     }
+
+    /**
+     * A submitted task along with the future handed out to the caller.
+     */
+    private class PendingTask
+    {
+        private final OfficeTask task;
+
+        private final OfficeTaskPriority priority;
+
+        private final boolean heavy;
+
+        private final CompletableFuture<Void> result = new CompletableFuture<Void>();
+
+        private volatile ScheduledFuture< ? > queueTimeout;
+
+        private volatile CompletableFuture<Void> managerResult;
+
+        PendingTask(OfficeTask task)
+        {
+            this.task = task;
+            this.priority = task.getPriority() != null ? task.getPriority() : OfficeTaskPriority.NORMAL;
+            this.heavy = ProcessPoolOfficeManager.this.settings.getHeavyTaskThreshold() > 0
+                && task.getEstimatedCost() >= ProcessPoolOfficeManager.this.settings.getHeavyTaskThreshold();
+        }
+
+        void cancel()
+        {
+            if (removeQueuedTask(this) && this.queueTimeout != null) {
+                this.queueTimeout.cancel(false);
+            }
+            if (this.managerResult != null) {
+                this.managerResult.cancel(true);
+            }
+        }
+    }
 }
@@ -0,0 +1,269 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.io.File;
+
+import org.artofsolving.jodconverter.process.ProcessManager;
+import org.artofsolving.jodconverter.process.PureJavaProcessManager;
+
+class ProcessPoolOfficeManagerSettings
+{
+    public static final long DEFAULT_TASK_QUEUE_TIMEOUT = 30000L;
+
+    public static final long DEFAULT_PROCESS_IDLE_TIMEOUT = 300000L;
+
+    private final UnoUrl[] unoUrls;
+
+    private File officeHome = OfficeUtils.getDefaultOfficeHome();
+
+    private String[] runAsArgs;
+
+    private File templateProfileDir;
+
+    private File workDir = new File(System.getProperty("java.io.tmpdir"));
+
+    private ProcessManager processManager = new PureJavaProcessManager();
+
+    private long retryTimeout = DefaultOfficeManagerConfiguration.DEFAULT_RETRY_TIMEOUT;
+
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    private long taskQueueTimeout = DEFAULT_TASK_QUEUE_TIMEOUT;
+
+    private int taskQueueCapacity = Integer.MAX_VALUE;
+
+    private int reservedHighPriorityProcesses = 0;
+
+    private long heavyTaskThreshold = 0; // 0: no task is heavy
+
+    private int maxHeavyTasks = 1;
+
+    private long taskExecutionTimeout = PooledOfficeManagerSettings.DEFAULT_TASK_EXECUTION_TIMEOUT;
+
+    private int maxTasksPerProcess = PooledOfficeManagerSettings.DEFAULT_MAX_TASKS_PER_PROCESS;
+
+    private int minProcesses; // the pool grows on demand from minProcesses up to one process per UNO URL
+
+    private long processIdleTimeout = DEFAULT_PROCESS_IDLE_TIMEOUT;
+
+    private UnoUrl standbyUnoUrl; // no standby process if null
+
+    private int startupQuorum; // 0: all of minProcesses
+
+    private boolean reuseProfileDir;
+
+    /**
+     * @param unoUrls one URL per office process the pool may run
+     */
+    public ProcessPoolOfficeManagerSettings(UnoUrl[] unoUrls)
+    {
+        this.unoUrls = unoUrls;
+        this.minProcesses = unoUrls.length;
+    }
+
+    public UnoUrl[] getUnoUrls()
+    {
+        return this.unoUrls;
+    }
+
+    public File getOfficeHome()
+    {
+        return this.officeHome;
+    }
+
+    public void setOfficeHome(File officeHome)
+    {
+        this.officeHome = officeHome;
+    }
+
+    public String[] getRunAsArgs()
+    {
+        return this.runAsArgs;
+    }
+
+    public void setRunAsArgs(String[] runAsArgs)
+    {
+        this.runAsArgs = runAsArgs;
+    }
+
+    public File getTemplateProfileDir()
+    {
+        return this.templateProfileDir;
+    }
+
+    public void setTemplateProfileDir(File templateProfileDir)
+    {
+        this.templateProfileDir = templateProfileDir;
+    }
+
+    public File getWorkDir()
+    {
+        return this.workDir;
+    }
+
+    public void setWorkDir(File workDir)
+    {
+        this.workDir = workDir;
+    }
+
+    public ProcessManager getProcessManager()
+    {
+        return this.processManager;
+    }
+
+    public void setProcessManager(ProcessManager processManager)
+    {
+        this.processManager = processManager;
+    }
+
+    public long getRetryTimeout()
+    {
+        return this.retryTimeout;
+    }
+
+    public void setRetryTimeout(long retryTimeout)
+    {
+        this.retryTimeout = retryTimeout;
+    }
+
+    public RetryPolicy getRetryPolicy()
+    {
+        return this.retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy)
+    {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public long getTaskQueueTimeout()
+    {
+        return this.taskQueueTimeout;
+    }
+
+    public void setTaskQueueTimeout(long taskQueueTimeout)
+    {
+        this.taskQueueTimeout = taskQueueTimeout;
+    }
+
+    public int getTaskQueueCapacity()
+    {
+        return this.taskQueueCapacity;
+    }
+
+    public void setTaskQueueCapacity(int taskQueueCapacity)
+    {
+        this.taskQueueCapacity = taskQueueCapacity;
+    }
+
+    public int getReservedHighPriorityProcesses()
+    {
+        return this.reservedHighPriorityProcesses;
+    }
+
+    public void setReservedHighPriorityProcesses(int reservedHighPriorityProcesses)
+    {
+        this.reservedHighPriorityProcesses = reservedHighPriorityProcesses;
+    }
+
+    public long getHeavyTaskThreshold()
+    {
+        return this.heavyTaskThreshold;
+    }
+
+    public void setHeavyTaskThreshold(long heavyTaskThreshold)
+    {
+        this.heavyTaskThreshold = heavyTaskThreshold;
+    }
+
+    public int getMaxHeavyTasks()
+    {
+        return this.maxHeavyTasks;
+    }
+
+    public void setMaxHeavyTasks(int maxHeavyTasks)
+    {
+        this.maxHeavyTasks = maxHeavyTasks;
+    }
+
+    public long getTaskExecutionTimeout()
+    {
+        return this.taskExecutionTimeout;
+    }
+
+    public void setTaskExecutionTimeout(long taskExecutionTimeout)
+    {
+        this.taskExecutionTimeout = taskExecutionTimeout;
+    }
+
+    public int getMaxTasksPerProcess()
+    {
+        return this.maxTasksPerProcess;
+    }
+
+    public void setMaxTasksPerProcess(int maxTasksPerProcess)
+    {
+        this.maxTasksPerProcess = maxTasksPerProcess;
+    }
+
+    public int getMinProcesses()
+    {
+        return this.minProcesses;
+    }
+
+    public void setMinProcesses(int minProcesses)
+    {
+        this.minProcesses = minProcesses;
+    }
+
+    public long getProcessIdleTimeout()
+    {
+        return this.processIdleTimeout;
+    }
+
+    public void setProcessIdleTimeout(long processIdleTimeout)
+    {
+        this.processIdleTimeout = processIdleTimeout;
+    }
+
+    public UnoUrl getStandbyUnoUrl()
+    {
+        return this.standbyUnoUrl;
+    }
+
+    public void setStandbyUnoUrl(UnoUrl standbyUnoUrl)
+    {
+        this.standbyUnoUrl = standbyUnoUrl;
+    }
+
+    public int getStartupQuorum()
+    {
+        return this.startupQuorum;
+    }
+
+    public void setStartupQuorum(int startupQuorum)
+    {
+        this.startupQuorum = startupQuorum;
+    }
+
+    public boolean isReuseProfileDir()
+    {
+        return this.reuseProfileDir;
+    }
+
+    public void setReuseProfileDir(boolean reuseProfileDir)
+    {
+        this.reuseProfileDir = reuseProfileDir;
+    }
+}
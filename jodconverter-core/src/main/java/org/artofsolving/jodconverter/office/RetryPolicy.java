@@ -0,0 +1,85 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how long to wait before retrying an operation that failed temporarily, e.g. connecting to an office process
+ * that is still starting up. The first attempt is always made immediately.
+ * <p>
+ * Subclasses can override {@link #getDelay(int)} to implement other strategies.
+ */
+public class RetryPolicy
+{
+    /** Starts at 50 ms and doubles up to 1 second, with 20% jitter. */
+    public static final RetryPolicy DEFAULT = exponential(50L, 1000L, 2.0, 0.2);
+
+    private final long initialDelay;
+
+    private final long maxDelay;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    protected RetryPolicy(long initialDelay, long maxDelay, double multiplier, double jitter)
+    {
+        if (initialDelay < 0L || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("invalid delays: " + initialDelay + ", " + maxDelay);
+        }
+        if (multiplier < 1.0 || jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("invalid multiplier or jitter: " + multiplier + ", " + jitter);
+        }
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    /**
+     * @param interval the delay between two attempts, in milliseconds
+     * @return a policy retrying at a fixed interval
+     */
+    public static RetryPolicy fixed(long interval)
+    {
+        return new RetryPolicy(interval, interval, 1.0, 0.0);
+    }
+
+    /**
+     * @param initialDelay the delay after the first failed attempt, in milliseconds
+     * @param maxDelay the maximum delay between two attempts, in milliseconds
+     * @param multiplier the factor applied to the delay after each failed attempt
+     * @param jitter the fraction of each delay that is randomised, between 0 and 1, so that processes started
+     *            together don't retry in lockstep
+     * @return a policy retrying with exponential backoff
+     */
+    public static RetryPolicy exponential(long initialDelay, long maxDelay, double multiplier, double jitter)
+    {
+        return new RetryPolicy(initialDelay, maxDelay, multiplier, jitter);
+    }
+
+    /**
+     * @param failedAttempts the number of attempts made so far, at least 1
+     * @return the time to wait before the next attempt, in milliseconds
+     */
+    public long getDelay(int failedAttempts)
+    {
+        double delay = this.initialDelay * Math.pow(this.multiplier, failedAttempts - 1);
+        delay = Math.min(delay, this.maxDelay);
+        if (this.jitter > 0.0) {
+            delay *= 1.0 - this.jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long) delay;
+    }
+}
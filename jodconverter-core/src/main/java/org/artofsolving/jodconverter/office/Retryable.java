@@ -20,6 +20,8 @@
      */
     protected abstract void attempt() throws TemporaryException, Exception;
 
+    private int attempts;
+
     public void execute(long interval, long timeout) throws RetryTimeoutException, Exception
     {
         execute(0L, interval, timeout);
@@ -27,18 +29,31 @@ public void execute(long interval, long timeout) throws RetryTimeoutException, E
 
     public void execute(long delay, long interval, long timeout) throws RetryTimeoutException, Exception
     {
-        long start = System.currentTimeMillis();
         if (delay > 0L) {
-            sleep(delay);
+            Thread.sleep(delay);
         }
+        execute(RetryPolicy.fixed(interval), timeout);
+    }
+
+    /**
+     * Calls {@link #attempt()} until it succeeds, waiting between attempts as decided by the given policy.
+     * 
+     * @throws RetryTimeoutException if the last attempt failed temporarily and the timeout is over
+     * @throws InterruptedException if the thread is interrupted while waiting between attempts
+     */
+    public void execute(RetryPolicy retryPolicy, long timeout) throws RetryTimeoutException, Exception
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        this.attempts = 0;
         while (true) {
             try {
+                this.attempts++;
                 attempt();
                 return;
             } catch (TemporaryException temporaryException) {
-                if (System.currentTimeMillis() - start < timeout) {
-                    sleep(interval);
-                    // continue
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining > 0L) {
+                    Thread.sleep(Math.min(retryPolicy.getDelay(this.attempts), remaining));
                 } else {
                     throw new RetryTimeoutException(temporaryException.getCause());
                 }
@@ -46,12 +61,11 @@ public void execute(long delay, long interval, long timeout) throws RetryTimeout
         }
     }
 
-    private void sleep(long millis)
+    /**
+     * @return the number of attempts made by the last execution
+     */
+    public int getAttempts()
     {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException interruptedException) {
-            // continue
-        }
+        return this.attempts;
     }
 }
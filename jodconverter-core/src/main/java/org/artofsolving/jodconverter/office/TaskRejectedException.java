@@ -0,0 +1,26 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+/**
+ * Thrown when a task is refused straight away because the task queue of the office manager is full.
+ */
+public class TaskRejectedException extends OfficeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public TaskRejectedException(String message)
+    {
+        super(message);
+    }
+}
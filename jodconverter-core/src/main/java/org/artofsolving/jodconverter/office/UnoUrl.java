@@ -32,22 +32,25 @@
 
     private final String connectString;
 
-    private UnoUrl(String acceptString, String connectString)
+    private final int port;
+
+    private UnoUrl(String acceptString, String connectString, int port)
     {
         this.acceptString = acceptString;
         this.connectString = connectString;
+        this.port = port;
     }
 
     public static UnoUrl socket(int port)
     {
         String socketString = "socket,host=127.0.0.1,port=" + port;
-        return new UnoUrl(socketString, socketString + ",tcpNoDelay=1");
+        return new UnoUrl(socketString, socketString + ",tcpNoDelay=1", port);
     }
 
     public static UnoUrl pipe(String pipeName)
     {
         String pipeString = "pipe,name=" + pipeName;
-        return new UnoUrl(pipeString, pipeString);
+        return new UnoUrl(pipeString, pipeString, -1);
     }
 
     public String getAcceptString()
@@ -60,6 +63,14 @@ public String getConnectString()
         return this.connectString;
     }
 
+    /**
+     * @return the TCP port for a socket connection, -1 for a pipe
+     */
+    public int getPort()
+    {
+        return this.port;
+    }
+
     @Override
     public String toString()
     {
@@ -36,6 +36,11 @@ public void setRunAsArgs(String... runAsArgs)
         this.runAsArgs = runAsArgs;
     }
 
+    protected String[] getRunAsArgs()
+    {
+        return this.runAsArgs;
+    }
+
     protected String[] psCommand()
     {
         return new String[] {"/bin/ps", "-e", "-o", "pid,args"};
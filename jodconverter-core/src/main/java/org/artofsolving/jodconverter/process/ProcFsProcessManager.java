@@ -0,0 +1,113 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ProcessManager} implementation for Linux that reads the process table from <tt>/proc</tt> instead of forking
+ * <tt>ps</tt>, and that gets the pid of the processes it launched, and kills them, through the {@link Process} object
+ * itself.
+ * <p>
+ * Falls back to {@link LinuxProcessManager} for killing processes it didn't launch, and when run-as arguments are
+ * set, since the process then belongs to another user.
+ */
+public class ProcFsProcessManager extends LinuxProcessManager
+{
+    private static final File PROC_DIR = new File("/proc");
+
+    private static final Pattern PID_DIR_NAME = Pattern.compile("\\d+");
+
+    /**
+     * @return <code>true</code> if the process table can be read from <tt>/proc</tt> on this system
+     */
+    public static boolean isAvailable()
+    {
+        return new File(PROC_DIR, "self/cmdline").canRead();
+    }
+
+    @Override
+    public long findPid(ProcessQuery query) throws IOException
+    {
+        File[] processDirs = PROC_DIR.listFiles();
+        if (processDirs == null) {
+            return super.findPid(query);
+        }
+        String regex = Pattern.quote(query.getCommand()) + ".*" + Pattern.quote(query.getArgument());
+        Pattern commandPattern = Pattern.compile(regex);
+        for (File processDir : processDirs) {
+            if (PID_DIR_NAME.matcher(processDir.getName()).matches()) {
+                String command = readCommandLine(processDir);
+                if (command != null && commandPattern.matcher(command).find()) {
+                    return Long.parseLong(processDir.getName());
+                }
+            }
+        }
+        return PID_NOT_FOUND;
+    }
+
+    @Override
+    public long getPid(Process process)
+    {
+        if (getRunAsArgs() != null) {
+            // the launched process is the run-as command, not office
+            return PID_UNKNOWN;
+        }
+        try {
+            // Java 9+
+            Method pidMethod = Process.class.getMethod("pid");
+            return ((Long) pidMethod.invoke(process)).longValue();
+        } catch (NoSuchMethodException noSuchMethodException) {
+            // Java 8 on Unix: java.lang.UNIXProcess
+            try {
+                Field pidField = process.getClass().getDeclaredField("pid");
+                pidField.setAccessible(true);
+                return pidField.getInt(process);
+            } catch (Exception exception) {
+                return PID_UNKNOWN;
+            }
+        } catch (Exception exception) {
+            return PID_UNKNOWN;
+        }
+    }
+
+    @Override
+    public void kill(Process process, long pid) throws IOException
+    {
+        if (process != null && pid > 0 && getPid(process) == pid) {
+            process.destroyForcibly();
+        } else {
+            super.kill(process, pid);
+        }
+    }
+
+    /**
+     * @return the command line with arguments separated by spaces, like <tt>ps</tt> prints it, or <code>null</code>
+     *         if the process has exited or can't be inspected
+     */
+    private String readCommandLine(File processDir)
+    {
+        try {
+            byte[] commandLine = Files.readAllBytes(new File(processDir, "cmdline").toPath());
+            return new String(commandLine, StandardCharsets.UTF_8).replace('\0', ' ').trim();
+        } catch (IOException ioException) {
+            return null;
+        }
+    }
+}
@@ -29,4 +29,16 @@
      * @throws IOException
      */
     long findPid(ProcessQuery query) throws IOException;
+
+    /**
+     * Gets the pid of a process launched from Java without searching the process table.
+     * 
+     * @param process the launched process
+     * @return the pid, or {@link #PID_UNKNOWN} if this implementation is unable to find out, in which case
+     *         {@link #findPid(ProcessQuery)} should be used
+     */
+    default long getPid(Process process)
+    {
+        return PID_UNKNOWN;
+    }
 }
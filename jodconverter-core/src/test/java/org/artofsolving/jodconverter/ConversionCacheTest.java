@@ -0,0 +1,107 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.artofsolving.jodconverter.document.DocumentFormat;
+import org.artofsolving.jodconverter.filter.OfficeDocumentFilter;
+import org.testng.annotations.Test;
+
+@Test
+public class ConversionCacheTest
+{
+    private static final DocumentFormat PDF = new DocumentFormat("PDF", "pdf", "application/pdf");
+
+    private static final DocumentFormat HTML = new DocumentFormat("HTML", "html", "text/html");
+
+    private static final Map<String, ? > NO_PROPERTIES = Collections.emptyMap();
+
+    private static final List<OfficeDocumentFilter> NO_FILTERS = Collections.emptyList();
+
+    public void keyDependsOnContentAndFormat() throws IOException
+    {
+        File dir = createTempDir();
+        try {
+            ConversionCache cache = new ConversionCache(new File(dir, "cache"), 1024);
+            File input1 = writeFile(dir, "a.odt", "same content");
+            File input2 = writeFile(dir, "b.odt", "same content");
+            File input3 = writeFile(dir, "c.odt", "other content");
+            String key = cache.getKey(input1, PDF, NO_PROPERTIES, NO_FILTERS);
+            assertEquals(cache.getKey(input2, PDF, NO_PROPERTIES, NO_FILTERS), key);
+            assertFalse(cache.getKey(input3, PDF, NO_PROPERTIES, NO_FILTERS).equals(key));
+            assertFalse(cache.getKey(input1, HTML, NO_PROPERTIES, NO_FILTERS).equals(key));
+            assertFalse(cache.getKey(input1, PDF, Collections.singletonMap("Hidden", true), NO_FILTERS).equals(key));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    public void getReturnsStoredDocument() throws IOException
+    {
+        File dir = createTempDir();
+        try {
+            ConversionCache cache = new ConversionCache(new File(dir, "cache"), 1024);
+            File output = new File(dir, "out.pdf");
+            assertFalse(cache.get("key", output));
+            cache.put("key", writeFile(dir, "converted.pdf", "converted"));
+            assertTrue(cache.get("key", output));
+            assertEquals(FileUtils.readFileToString(output, "UTF-8"), "converted");
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    public void evictsLeastRecentlyUsed() throws IOException
+    {
+        File dir = createTempDir();
+        try {
+            ConversionCache cache = new ConversionCache(new File(dir, "cache"), 20);
+            File output = new File(dir, "out.pdf");
+            cache.put("first", writeFile(dir, "1.pdf", "0123456789"));
+            cache.put("second", writeFile(dir, "2.pdf", "0123456789"));
+            assertTrue(cache.get("first", output));
+            cache.put("third", writeFile(dir, "3.pdf", "0123456789"));
+            assertTrue(cache.get("first", output));
+            assertFalse(cache.get("second", output));
+            assertTrue(cache.get("third", output));
+            assertEquals(cache.getSize(), 20L);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private File createTempDir() throws IOException
+    {
+        File dir = File.createTempFile("conversionCache", "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    private File writeFile(File dir, String name, String content) throws IOException
+    {
+        File file = new File(dir, name);
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return file;
+    }
+}
@@ -0,0 +1,118 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.document;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+@Test
+public class DocumentFormatSnifferTest
+{
+    private final DocumentFormatSniffer sniffer = new DocumentFormatSniffer(new DefaultDocumentFormatRegistry());
+
+    public void sniffTestDocuments() throws IOException
+    {
+        String[] extensions =
+            {"doc", "xls", "ppt", "odt", "ods", "odp", "odg", "sxw", "sxc", "sxi", "rtf", "html"};
+        for (String extension : extensions) {
+            File document = new File("src/test/resources/documents/test." + extension);
+            DocumentFormat format = this.sniffer.sniff(document);
+            assertEquals(format != null ? format.getExtension() : null, extension, document.getName());
+        }
+        assertNull(this.sniffer.sniff(new File("src/test/resources/documents/test.txt")));
+    }
+
+    public void sniffDelimitedValues() throws IOException
+    {
+        assertEquals(sniff("name,\"city, country\"\nAlice,Paris\nBob,\"Oslo, Norway\"\n").getExtension(), "csv");
+        assertEquals(sniff("name\tcity\nAlice\tParis\n").getExtension(), "tsv");
+        assertNull(sniff("Some text, with commas\nbut not, always, the same number\n"));
+    }
+
+    public void textHeuristicsDontOverrideExtension() throws IOException
+    {
+        String csv = "first line, with a comma\nsecond line, with a comma\n";
+        assertNull(sniff(csv, ".txt"));
+        assertEquals(sniff(csv, ".csv").getExtension(), "csv");
+        assertEquals(sniff("{\\rtf1 text}", ".txt").getExtension(), "rtf");
+    }
+
+    public void legacyBinaryFormatsAreLeftToOffice() throws IOException
+    {
+        assertEquals(detect("WordDocument", "1Table").getFilterName(), "MS Word 97");
+        assertNull(detect("WordDocument").getFilterName());
+        assertEquals(detect("Workbook").getFilterName(), "MS Excel 97");
+        DocumentFormatSniffer.Detection excel95 = detect("Book");
+        assertEquals(excel95.getFormat().getExtension(), "xls");
+        assertNull(excel95.getFilterName());
+    }
+
+    public void filterNameForSniffedFormat()
+    {
+        DocumentFormatRegistry registry = new DefaultDocumentFormatRegistry();
+        assertEquals(this.sniffer.getFilterName(registry.getFormatByExtension("doc")), "MS Word 97");
+        assertEquals(this.sniffer.getFilterName(registry.getFormatByExtension("csv")), "Text - txt - csv (StarCalc)");
+    }
+
+    /**
+     * Detects a minimal OLE2 compound file holding the given entries.
+     */
+    private DocumentFormatSniffer.Detection detect(String... entryNames) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.put(Ole2Directory.SIGNATURE);
+        bytes.putShort(0x1E, (short) 9);
+        bytes.putInt(0x30, 0);
+        bytes.putInt(0x4C, -1);
+        for (int i = 0; i < entryNames.length; i++) {
+            byte[] name = entryNames[i].getBytes(StandardCharsets.UTF_16LE);
+            int offset = 512 + i * 128;
+            for (int j = 0; j < name.length; j++) {
+                bytes.put(offset + j, name[j]);
+            }
+            bytes.putShort(offset + 0x40, (short) (name.length + 2));
+        }
+        File file = File.createTempFile("sniff", ".bin");
+        try {
+            FileUtils.writeByteArrayToFile(file, bytes.array());
+            return this.sniffer.detect(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private DocumentFormat sniff(String content) throws IOException
+    {
+        return sniff(content, ".bin");
+    }
+
+    private DocumentFormat sniff(String content, String suffix) throws IOException
+    {
+        File file = File.createTempFile("sniff", suffix);
+        try {
+            FileUtils.writeStringToFile(file, content, "UTF-8");
+            return this.sniffer.sniff(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -17,7 +17,6 @@
 import java.util.List;
 import java.util.Map;
 
-import org.artofsolving.jodconverter.ReflectionUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -81,10 +80,7 @@ private static JSONObject toJson(Map<String, ? > properties) throws JSONExceptio
     public static void main(String[] args) throws Exception
     {
         DefaultDocumentFormatRegistry registry = new DefaultDocumentFormatRegistry();
-        @SuppressWarnings("unchecked")
-        List<DocumentFormat> formats =
-            (List<DocumentFormat>) ReflectionUtils.getPrivateField(SimpleDocumentFormatRegistry.class, registry,
-                "documentFormats");
+        List<DocumentFormat> formats = registry.getFormats();
         JSONArray array = new JSONArray();
         for (DocumentFormat format : formats) {
             array.put(toJson(format));
@@ -0,0 +1,86 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.document;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+@Test
+public class PreflightCheckerTest
+{
+    public void estimatePages()
+    {
+        PreflightChecker checker = new PreflightChecker();
+        assertEquals(checker.check(new File("src/test/resources/documents/test.odt")), 1);
+        assertEquals(checker.check(new File("src/test/resources/documents/test.ods")), 3);
+        assertEquals(checker.check(new File("src/test/resources/documents/test.doc")), 0);
+    }
+
+    public void tablesAreNotPagesInTextDocuments() throws IOException
+    {
+        File file = File.createTempFile("preflight", ".odt");
+        try {
+            ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+            try {
+                output.putNextEntry(new ZipEntry("mimetype"));
+                output.write("application/vnd.oasis.opendocument.text".getBytes(StandardCharsets.US_ASCII));
+                output.putNextEntry(new ZipEntry("meta.xml"));
+                output.write("<meta:document-statistic meta:page-count=\"3\" meta:table-count=\"60\"/>"
+                    .getBytes(StandardCharsets.UTF_8));
+            } finally {
+                output.close();
+            }
+            assertEquals(new PreflightChecker().check(file), 3);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void rejectInvalidDocuments() throws IOException
+    {
+        PreflightChecker checker = new PreflightChecker();
+        File file = File.createTempFile("preflight", ".odt");
+        try {
+            assertRejected(checker, file);
+            // a ZIP signature without a ZIP directory
+            FileUtils.writeByteArrayToFile(file, new byte[] {'P', 'K', 3, 4, 'b', 'r', 'o', 'k', 'e', 'n'});
+            assertRejected(checker, file);
+        } finally {
+            file.delete();
+        }
+        checker.setMaxPages(2);
+        assertRejected(checker, new File("src/test/resources/documents/test.ods"));
+        checker.setMaxFileSize(10);
+        assertRejected(checker, new File("src/test/resources/documents/test.txt"));
+    }
+
+    private void assertRejected(PreflightChecker checker, File file)
+    {
+        try {
+            checker.check(file);
+            fail("expected InvalidDocumentException for " + file.getName());
+        } catch (InvalidDocumentException invalidDocumentException) {
+            // expected
+        }
+    }
+}
@@ -25,7 +25,13 @@ public class MockOfficeTask implements OfficeTask
 {
     private long delayTime = 0L;
 
-    private boolean completed = false;
+    private OfficeTaskPriority priority = OfficeTaskPriority.NORMAL;
+
+    private long estimatedCost = 0L;
+
+    private long deadline = NO_DEADLINE;
+
+    private volatile boolean completed = false;
 
     public MockOfficeTask()
     {
@@ -37,6 +43,39 @@ public MockOfficeTask(long delayTime)
         this.delayTime = delayTime;
     }
 
+    public void setPriority(OfficeTaskPriority priority)
+    {
+        this.priority = priority;
+    }
+
+    @Override
+    public OfficeTaskPriority getPriority()
+    {
+        return this.priority;
+    }
+
+    public void setEstimatedCost(long estimatedCost)
+    {
+        this.estimatedCost = estimatedCost;
+    }
+
+    @Override
+    public long getEstimatedCost()
+    {
+        return this.estimatedCost;
+    }
+
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public long getDeadline()
+    {
+        return this.deadline;
+    }
+
     public void execute(OfficeContext context) throws OfficeException
     {
         XComponentLoader loader = cast(XComponentLoader.class, context.getService(SERVICE_DESKTOP));
@@ -51,7 +51,19 @@ public void executeTask() throws Exception
         officeManager.stop();
         assertFalse(connection.isConnected());
         assertFalse(process.isRunning());
-        assertEquals(process.getExitCode(0, 0), 0);
+        assertEquals(process.getExitCode(0), 0);
+    }
+
+    public void submitTask() throws Exception
+    {
+        PooledOfficeManager officeManager = new PooledOfficeManager(CONNECTION_MODE);
+        officeManager.start();
+
+        MockOfficeTask task = new MockOfficeTask();
+        officeManager.submit(task).get();
+        assertTrue(task.isCompleted());
+
+        officeManager.stop();
     }
 
     public void restartAfterCrash() throws Exception
@@ -99,7 +111,7 @@ public void run()
         officeManager.stop();
         assertFalse(connection.isConnected());
         assertFalse(process.isRunning());
-        assertEquals(process.getExitCode(0, 0), 0);
+        assertEquals(process.getExitCode(0), 0);
     }
 
     public void restartAfterTaskTimeout() throws Exception
@@ -138,7 +150,7 @@ public void restartAfterTaskTimeout() throws Exception
         officeManager.stop();
         assertFalse(connection.isConnected());
         assertFalse(process.isRunning());
-        assertEquals(process.getExitCode(0, 0), 0);
+        assertEquals(process.getExitCode(0), 0);
     }
 
     public void restartWhenMaxTasksPerProcessReached() throws Exception
@@ -175,6 +187,6 @@ public void restartWhenMaxTasksPerProcessReached() throws Exception
         officeManager.stop();
         assertFalse(connection.isConnected());
         assertFalse(process.isRunning());
-        assertEquals(process.getExitCode(0, 0), 0);
+        assertEquals(process.getExitCode(0), 0);
     }
 }
@@ -0,0 +1,628 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.artofsolving.jodconverter.ReflectionUtils;
+import org.testng.annotations.Test;
+
+/**
+ * Tests how {@link ProcessPoolOfficeManager} dispatches tasks, using {@link StubPooledOfficeManager}s so that no office
+ * installation is needed.
+ */
+@Test
+public class ProcessPoolDispatchTest
+{
+    /** How long to wait for the office managers started or stopped in the background. */
+    private static final long TIMEOUT = 5 * 1000;
+
+    public void rejectTaskWhenQueueIsFull() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(1);
+        settings.setTaskQueueCapacity(1);
+        StubPool pool = start(new StubPool(settings));
+        try {
+            MockOfficeTask runningTask = new MockOfficeTask();
+            CompletableFuture<Void> running = pool.submit(runningTask);
+            MockOfficeTask queuedTask = new MockOfficeTask();
+            CompletableFuture<Void> queued = pool.submit(queuedTask);
+            assertEquals(pool.getQueueDepth(), 1);
+
+            assertFailure(pool.submit(new MockOfficeTask()), TaskRejectedException.class);
+            assertEquals(pool.getQueueDepth(), 1);
+
+            // the rejection doesn't affect the tasks already accepted
+            pool.finish(runningTask);
+            running.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            pool.finish(queuedTask);
+            queued.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void runQueuedTasksInSubmissionOrder() throws Exception
+    {
+        StubPool pool = start(new StubPool(settings(1)));
+        try {
+            StubPooledOfficeManager manager = pool.getManager(0);
+            MockOfficeTask firstTask = new MockOfficeTask();
+            MockOfficeTask secondTask = new MockOfficeTask();
+            MockOfficeTask thirdTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            pool.submit(secondTask);
+            pool.submit(thirdTask);
+            assertEquals(pool.getQueueDepth(), 2);
+
+            pool.finish(firstTask);
+            assertSame(manager.getCurrentTask(), secondTask);
+            pool.finish(secondTask);
+            assertSame(manager.getCurrentTask(), thirdTask);
+            pool.finish(thirdTask);
+            assertNull(manager.getCurrentTask());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void runHigherPriorityTasksFirst() throws Exception
+    {
+        StubPool pool = start(new StubPool(settings(1)));
+        try {
+            StubPooledOfficeManager manager = pool.getManager(0);
+            MockOfficeTask runningTask = new MockOfficeTask();
+            pool.submit(runningTask);
+            MockOfficeTask lowTask = newTask(OfficeTaskPriority.LOW);
+            pool.submit(lowTask);
+            MockOfficeTask normalTask = newTask(OfficeTaskPriority.NORMAL);
+            pool.submit(normalTask);
+            MockOfficeTask highTask = newTask(OfficeTaskPriority.HIGH);
+            pool.submit(highTask);
+
+            pool.finish(runningTask);
+            assertSame(manager.getCurrentTask(), highTask);
+            pool.finish(highTask);
+            assertSame(manager.getCurrentTask(), normalTask);
+            pool.finish(normalTask);
+            assertSame(manager.getCurrentTask(), lowTask);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void reserveProcessForHighPriorityTasks() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setReservedHighPriorityProcesses(1);
+        StubPool pool = start(new StubPool(settings));
+        try {
+            MockOfficeTask runningTask = new MockOfficeTask();
+            pool.submit(runningTask);
+            MockOfficeTask normalTask = new MockOfficeTask();
+            pool.submit(normalTask);
+            // the last idle office manager is kept for high priority tasks
+            assertEquals(pool.getQueueDepth(), 1);
+
+            MockOfficeTask highTask = newTask(OfficeTaskPriority.HIGH);
+            pool.submit(highTask);
+            assertNotNull(pool.getManagerRunning(highTask));
+            // and kept again once released
+            pool.finish(highTask);
+            assertEquals(pool.getQueueDepth(), 1);
+
+            pool.finish(runningTask);
+            assertNotNull(pool.getManagerRunning(normalTask));
+            assertEquals(pool.getQueueDepth(), 0);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void scaleUpWhileTasksWait() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setMinProcesses(1);
+        StubPool pool = start(new StubPool(settings));
+        try {
+            assertEquals(pool.getProcessCount(), 1);
+            MockOfficeTask firstTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            MockOfficeTask secondTask = new MockOfficeTask();
+            pool.submit(secondTask);
+            // another office manager is started for the waiting task
+            assertEquals(pool.getProcessCount(), 2);
+            assertSame(waitForDispatch(pool, secondTask), pool.getManager(1));
+
+            // but not more than the maximum
+            pool.submit(new MockOfficeTask());
+            assertEquals(pool.getProcessCount(), 2);
+            assertEquals(pool.getQueueDepth(), 1);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void stopIdleProcessesDownToMinimum() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setMinProcesses(1);
+        settings.setProcessIdleTimeout(100);
+        final StubPool pool = start(new StubPool(settings));
+        try {
+            MockOfficeTask firstTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            MockOfficeTask secondTask = new MockOfficeTask();
+            pool.submit(secondTask);
+            waitForDispatch(pool, secondTask);
+            pool.finish(firstTask);
+            pool.finish(secondTask);
+
+            waitFor("the idle office manager to stop", new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    return pool.getProcessCount() == 1 && pool.getRunningCount() == 1;
+                }
+            });
+            MockOfficeTask task = new MockOfficeTask();
+            pool.submit(task);
+            assertNotNull(pool.getManagerRunning(task));
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void reuseSlotOnlyOnceStopped() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setMinProcesses(1);
+        settings.setProcessIdleTimeout(100);
+        final StubPool pool = start(new StubPool(settings));
+        try {
+            MockOfficeTask firstTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            MockOfficeTask secondTask = new MockOfficeTask();
+            pool.submit(secondTask);
+            waitForDispatch(pool, secondTask);
+            pool.getManager(0).holdStop();
+            pool.getManager(1).holdStop();
+            pool.finish(firstTask);
+            pool.finish(secondTask);
+            waitFor("an idle office manager to be stopped", new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    return pool.getProcessCount() == 1;
+                }
+            });
+
+            // scale up again while the office process is still stopping
+            MockOfficeTask thirdTask = new MockOfficeTask();
+            pool.submit(thirdTask);
+            assertNotNull(pool.getManagerRunning(thirdTask));
+            MockOfficeTask fourthTask = new MockOfficeTask();
+            pool.submit(fourthTask);
+            // its UNO URL is still in use
+            assertEquals(pool.getProcessCount(), 1);
+            assertEquals(pool.getQueueDepth(), 1);
+
+            pool.getManager(0).releaseStop();
+            pool.getManager(1).releaseStop();
+            assertSame(waitForDispatch(pool, fourthTask), pool.getManager(2));
+            assertEquals(pool.getProcessCount(), 2);
+        } finally {
+            pool.getManager(0).releaseStop();
+            pool.getManager(1).releaseStop();
+            pool.stop();
+        }
+    }
+
+    public void swapExhaustedProcessWithStandby() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(1);
+        settings.setStandbyUnoUrl(UnoUrl.socket(2003));
+        final StubPool pool = start(new StubPool(settings));
+        try {
+            final StubPooledOfficeManager manager = pool.getManager(0);
+            StubPooledOfficeManager standbyManager = pool.getManager(1);
+            waitForStandby(pool);
+
+            MockOfficeTask firstTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            manager.setExhausted(true);
+            pool.finish(firstTask);
+
+            // the standby office manager takes the place of the exhausted one, which is restarted in the background
+            MockOfficeTask secondTask = new MockOfficeTask();
+            pool.submit(secondTask);
+            assertSame(pool.getManagerRunning(secondTask), standbyManager);
+            waitForStandby(pool);
+            assertEquals(manager.getRestartCount(), 1);
+            assertNull(manager.getCurrentTask());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void keepExhaustedProcessUntilStandbyIsReady() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(1);
+        settings.setStandbyUnoUrl(UnoUrl.socket(2003));
+        StubPool pool = new StubPool(settings);
+        pool.holdStart(1);
+        start(pool);
+        try {
+            StubPooledOfficeManager manager = pool.getManager(0);
+            MockOfficeTask firstTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            manager.setExhausted(true);
+            pool.finish(firstTask);
+
+            // the office manager restarts itself when it runs its next task
+            MockOfficeTask secondTask = new MockOfficeTask();
+            pool.submit(secondTask);
+            assertSame(pool.getManagerRunning(secondTask), manager);
+            assertEquals(manager.getRestartCount(), 0);
+        } finally {
+            pool.getManager(1).releaseStart();
+            pool.stop();
+        }
+    }
+
+    public void startOnceQuorumIsConnected() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setStartupQuorum(1);
+        StubPool pool = new StubPool(settings);
+        pool.holdStart(1);
+        start(pool);
+        try {
+            assertEquals(pool.getProcessCount(), 2);
+            MockOfficeTask firstTask = new MockOfficeTask();
+            pool.submit(firstTask);
+            assertSame(pool.getManagerRunning(firstTask), pool.getManager(0));
+            MockOfficeTask secondTask = new MockOfficeTask();
+            pool.submit(secondTask);
+            assertEquals(pool.getQueueDepth(), 1);
+
+            // the other office manager joins the pool once connected
+            pool.getManager(1).releaseStart();
+            assertSame(waitForDispatch(pool, secondTask), pool.getManager(1));
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void startDespiteFailuresWithinQuorum() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setStartupQuorum(1);
+        final StubPool pool = new StubPool(settings);
+        pool.failStart(1);
+        start(pool);
+        try {
+            waitFor("the failed office manager to leave the pool", new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    return pool.getProcessCount() == 1;
+                }
+            });
+            MockOfficeTask task = new MockOfficeTask();
+            pool.submit(task);
+            assertSame(pool.getManagerRunning(task), pool.getManager(0));
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void failToStartWithoutQuorum() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setStartupQuorum(2);
+        StubPool pool = new StubPool(settings);
+        pool.failStart(1);
+        try {
+            pool.start();
+            fail("expected OfficeException");
+        } catch (OfficeException officeException) {
+            assertEquals(pool.getProcessCount(), 0);
+        }
+    }
+
+    public void limitConcurrentHeavyTasks() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(3);
+        settings.setHeavyTaskThreshold(100);
+        settings.setMaxHeavyTasks(1);
+        StubPool pool = start(new StubPool(settings));
+        try {
+            MockOfficeTask heavyTask = newTask(100);
+            pool.submit(heavyTask);
+            MockOfficeTask nextHeavyTask = newTask(1000);
+            pool.submit(nextHeavyTask);
+            // waits although office managers are idle
+            assertEquals(pool.getQueueDepth(), 1);
+
+            // while light tasks still get them
+            MockOfficeTask lightTask = newTask(99);
+            pool.submit(lightTask);
+            assertNotNull(pool.getManagerRunning(lightTask));
+
+            pool.finish(heavyTask);
+            assertNotNull(pool.getManagerRunning(nextHeavyTask));
+            assertEquals(pool.getQueueDepth(), 0);
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void runLightTasksPastWaitingHeavyOnes() throws Exception
+    {
+        ProcessPoolOfficeManagerSettings settings = settings(2);
+        settings.setHeavyTaskThreshold(100);
+        settings.setMaxHeavyTasks(1);
+        StubPool pool = start(new StubPool(settings));
+        try {
+            MockOfficeTask heavyTask = newTask(100);
+            pool.submit(heavyTask);
+            MockOfficeTask lightTask = newTask(0);
+            pool.submit(lightTask);
+            StubPooledOfficeManager lightManager = pool.getManagerRunning(lightTask);
+            MockOfficeTask nextHeavyTask = newTask(100);
+            pool.submit(nextHeavyTask);
+            MockOfficeTask nextLightTask = newTask(0);
+            pool.submit(nextLightTask);
+            assertEquals(pool.getQueueDepth(), 2);
+
+            // the released office manager skips the heavy task queued first
+            pool.finish(lightTask);
+            assertSame(pool.getManagerRunning(nextLightTask), lightManager);
+            assertEquals(pool.getQueueDepth(), 1);
+
+            pool.finish(heavyTask);
+            assertNotNull(pool.getManagerRunning(nextHeavyTask));
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void failTaskWhoseDeadlineHasPassed() throws Exception
+    {
+        StubPool pool = start(new StubPool(settings(1)));
+        try {
+            MockOfficeTask lateTask = new MockOfficeTask();
+            lateTask.setDeadline(System.nanoTime() - 1);
+            assertDeadlineExpired(pool.submit(lateTask));
+            assertNull(pool.getManager(0).getCurrentTask());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    public void failQueuedTaskWhenDeadlineExpires() throws Exception
+    {
+        StubPool pool = start(new StubPool(settings(1)));
+        try {
+            MockOfficeTask runningTask = new MockOfficeTask();
+            pool.submit(runningTask);
+            MockOfficeTask queuedTask = new MockOfficeTask();
+            queuedTask.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+            assertDeadlineExpired(pool.submit(queuedTask));
+            assertEquals(pool.getQueueDepth(), 0);
+
+            pool.finish(runningTask);
+            assertNull(pool.getManager(0).getCurrentTask());
+        } finally {
+            pool.stop();
+        }
+    }
+
+    private StubPool start(StubPool pool)
+    {
+        pool.start();
+        return pool;
+    }
+
+    private ProcessPoolOfficeManagerSettings settings(int processCount)
+    {
+        return new ProcessPoolOfficeManagerSettings(unoUrls(processCount));
+    }
+
+    private static UnoUrl[] unoUrls(int processCount)
+    {
+        UnoUrl[] unoUrls = new UnoUrl[processCount];
+        for (int i = 0; i < processCount; i++) {
+            unoUrls[i] = UnoUrl.socket(2002 + i);
+        }
+        return unoUrls;
+    }
+
+    private MockOfficeTask newTask(OfficeTaskPriority priority)
+    {
+        MockOfficeTask task = new MockOfficeTask();
+        task.setPriority(priority);
+        return task;
+    }
+
+    private MockOfficeTask newTask(long estimatedCost)
+    {
+        MockOfficeTask task = new MockOfficeTask();
+        task.setEstimatedCost(estimatedCost);
+        return task;
+    }
+
+    private StubPooledOfficeManager waitForDispatch(final StubPool pool, final OfficeTask task) throws Exception
+    {
+        waitFor("the task to be dispatched", new Callable<Boolean>()
+        {
+            public Boolean call()
+            {
+                return pool.getManagerRunning(task) != null;
+            }
+        });
+        return pool.getManagerRunning(task);
+    }
+
+    private void waitForStandby(final StubPool pool) throws Exception
+    {
+        waitFor("the standby office manager", new Callable<Boolean>()
+        {
+            public Boolean call() throws Exception
+            {
+                return pool.isStandbyReady();
+            }
+        });
+    }
+
+    private void waitFor(String description, Callable<Boolean> condition) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("timed out waiting for " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertDeadlineExpired(CompletableFuture<Void> result) throws Exception
+    {
+        Throwable failure = assertFailure(result, OfficeException.class);
+        assertTrue(failure.getCause() instanceof TimeoutException, "unexpected failure: " + failure);
+    }
+
+    private Throwable assertFailure(CompletableFuture<Void> result, Class<? extends Throwable> expectedType)
+        throws Exception
+    {
+        try {
+            result.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            fail("expected " + expectedType.getSimpleName());
+            return null;
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            assertTrue(expectedType.isInstance(cause), "unexpected failure: " + cause);
+            return cause;
+        }
+    }
+
+    /**
+     * Pool of {@link StubPooledOfficeManager}s, which are numbered in the order they are created.
+     */
+    private static class StubPool extends ProcessPoolOfficeManager
+    {
+        /** Office managers may also be created by the pool's own threads. */
+        private final List<StubPooledOfficeManager> managers = new CopyOnWriteArrayList<StubPooledOfficeManager>();
+
+        private final Set<String> runningAcceptStrings = new HashSet<String>();
+
+        private final Set<Integer> heldStarts = new HashSet<Integer>();
+
+        private final Set<Integer> failedStarts = new HashSet<Integer>();
+
+        StubPool(ProcessPoolOfficeManagerSettings settings)
+        {
+            super(settings);
+        }
+
+        @Override
+        PooledOfficeManager createManager(UnoUrl unoUrl)
+        {
+            StubPooledOfficeManager manager = new StubPooledOfficeManager(unoUrl, this.runningAcceptStrings);
+            if (this.heldStarts.contains(this.managers.size())) {
+                manager.holdStart();
+            }
+            if (this.failedStarts.contains(this.managers.size())) {
+                manager.setFailStart(true);
+            }
+            this.managers.add(manager);
+            return manager;
+        }
+
+        StubPooledOfficeManager getManager(int index)
+        {
+            return this.managers.get(index);
+        }
+
+        /**
+         * @return the office manager running the given task, or <code>null</code> if it is not running
+         */
+        StubPooledOfficeManager getManagerRunning(OfficeTask task)
+        {
+            for (StubPooledOfficeManager manager : this.managers) {
+                if (manager.getCurrentTask() == task) {
+                    return manager;
+                }
+            }
+            return null;
+        }
+
+        void finish(OfficeTask task)
+        {
+            StubPooledOfficeManager manager = getManagerRunning(task);
+            assertNotNull(manager, "task not running");
+            manager.finishTask();
+        }
+
+        int getRunningCount()
+        {
+            int runningCount = 0;
+            for (StubPooledOfficeManager manager : this.managers) {
+                if (manager.isRunning()) {
+                    runningCount++;
+                }
+            }
+            return runningCount;
+        }
+
+        /**
+         * Makes the office manager with the given number wait for {@link StubPooledOfficeManager#releaseStart()} when
+         * it is started.
+         */
+        void holdStart(int index)
+        {
+            this.heldStarts.add(index);
+        }
+
+        boolean isStandbyReady() throws Exception
+        {
+            synchronized (ReflectionUtils.getPrivateField(ProcessPoolOfficeManager.class, this, "taskQueues")) {
+                return (Boolean) ReflectionUtils.getPrivateField(ProcessPoolOfficeManager.class, this, "standbyReady");
+            }
+        }
+
+        /**
+         * Makes the office manager with the given number fail to start.
+         */
+        void failStart(int index)
+        {
+            this.failedStarts.add(index);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.artofsolving.jodconverter.ReflectionUtils;
+import org.testng.annotations.Test;
+
+@Test(groups = "integration")
+public class ProcessPoolOfficeManagerTest
+{
+    /** How long the tasks keeping an office process busy take. */
+    private static final long BUSY_TIME = 3 * 1000;
+
+    /** How long to wait for office processes started in the background. */
+    private static final long BACKGROUND_START_TIME = 30 * 1000;
+
+    public void rejectTaskWhenQueueIsFull() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager =
+            start(new DefaultOfficeManagerConfiguration().setPortNumbers(2002).setTaskQueueCapacity(1));
+        try {
+            MockOfficeTask busyTask = new MockOfficeTask(BUSY_TIME);
+            CompletableFuture<Void> busy = officeManager.submit(busyTask);
+            MockOfficeTask queuedTask = new MockOfficeTask();
+            CompletableFuture<Void> queued = officeManager.submit(queuedTask);
+            assertEquals(officeManager.getQueueDepth(), 1);
+
+            assertFailure(officeManager.submit(new MockOfficeTask()), TaskRejectedException.class);
+
+            // the rejection doesn't affect the tasks already accepted
+            CompletableFuture.allOf(busy, queued).get();
+            assertTrue(busyTask.isCompleted());
+            assertTrue(queuedTask.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void runHigherPriorityTaskFirst() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager =
+            start(new DefaultOfficeManagerConfiguration().setPortNumbers(2002));
+        try {
+            CompletableFuture<Void> busy = officeManager.submit(new MockOfficeTask(BUSY_TIME));
+            MockOfficeTask lowTask = new MockOfficeTask();
+            lowTask.setPriority(OfficeTaskPriority.LOW);
+            CompletableFuture<Void> low = officeManager.submit(lowTask);
+            MockOfficeTask highTask = new MockOfficeTask();
+            highTask.setPriority(OfficeTaskPriority.HIGH);
+            CompletableFuture<Void> high = officeManager.submit(highTask);
+
+            // the high priority task overtakes the low priority one queued before it
+            high.get();
+            assertFalse(lowTask.isCompleted());
+            CompletableFuture.allOf(busy, low).get();
+            assertTrue(lowTask.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void reserveProcessForHighPriorityTasks() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager = start(new DefaultOfficeManagerConfiguration()
+            .setPortNumbers(2002, 2003).setReservedHighPriorityProcesses(1));
+        try {
+            CompletableFuture<Void> busy = officeManager.submit(new MockOfficeTask(BUSY_TIME));
+            MockOfficeTask normalTask = new MockOfficeTask();
+            CompletableFuture<Void> normal = officeManager.submit(normalTask);
+            // the last idle process is kept for high priority tasks
+            assertEquals(officeManager.getQueueDepth(), 1);
+
+            MockOfficeTask highTask = new MockOfficeTask();
+            highTask.setPriority(OfficeTaskPriority.HIGH);
+            officeManager.execute(highTask);
+            assertTrue(highTask.isCompleted());
+            assertFalse(normalTask.isCompleted());
+
+            CompletableFuture.allOf(busy, normal).get();
+            assertTrue(normalTask.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void scaleWithLoad() throws Exception
+    {
+        long idleTimeout = 1000;
+        ProcessPoolOfficeManager officeManager = start(new DefaultOfficeManagerConfiguration()
+            .setPortNumbers(2002, 2003).setElasticPool(1, 2).setProcessIdleTimeout(idleTimeout));
+        try {
+            assertEquals(officeManager.getProcessCount(), 1);
+
+            CompletableFuture<Void> busy = officeManager.submit(new MockOfficeTask(BUSY_TIME));
+            MockOfficeTask queuedTask = new MockOfficeTask();
+            CompletableFuture<Void> queued = officeManager.submit(queuedTask);
+            // another process is started for the waiting task
+            assertEquals(officeManager.getProcessCount(), 2);
+            CompletableFuture.allOf(busy, queued).get();
+            assertTrue(queuedTask.isCompleted());
+
+            // the idle process is stopped again, the minimum is kept
+            Thread.sleep(3 * idleTimeout);
+            assertEquals(officeManager.getProcessCount(), 1);
+            MockOfficeTask task = new MockOfficeTask();
+            officeManager.execute(task);
+            assertTrue(task.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void swapExhaustedProcessWithStandby() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager = start(new DefaultOfficeManagerConfiguration().setPortNumbers(2002)
+            .setMaxTasksPerProcess(1).setStandbyProcess(true));
+        try {
+            PooledOfficeManager[] pooledManagers =
+                (PooledOfficeManager[]) ReflectionUtils.getPrivateField(officeManager, "pooledManagers");
+            PooledOfficeManager firstManager = pooledManagers[0];
+            PooledOfficeManager standbyManager =
+                (PooledOfficeManager) ReflectionUtils.getPrivateField(officeManager, "standbyManager");
+            waitForStandby(officeManager);
+
+            MockOfficeTask task = new MockOfficeTask();
+            officeManager.execute(task);
+            assertTrue(task.isCompleted());
+            // the exhausted process is restarted in the background while the standby one takes its place
+            assertSame(pooledManagers[0], standbyManager);
+            assertSame(ReflectionUtils.getPrivateField(officeManager, "standbyManager"), firstManager);
+
+            MockOfficeTask nextTask = new MockOfficeTask();
+            officeManager.execute(nextTask);
+            assertTrue(nextTask.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void startOnceQuorumIsConnected() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager =
+            start(new DefaultOfficeManagerConfiguration().setPortNumbers(2002, 2003).setStartupQuorum(1));
+        try {
+            assertEquals(officeManager.getProcessCount(), 2);
+            MockOfficeTask task = new MockOfficeTask();
+            officeManager.execute(task);
+            assertTrue(task.isCompleted());
+
+            // the other process joins the pool once connected
+            Object lock = ReflectionUtils.getPrivateField(officeManager, "taskQueues");
+            Collection<?> idleManagers = (Collection<?>) ReflectionUtils.getPrivateField(officeManager, "idleManagers");
+            long deadline = System.currentTimeMillis() + BACKGROUND_START_TIME;
+            while (true) {
+                synchronized (lock) {
+                    if (idleManagers.size() == 2) {
+                        break;
+                    }
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    fail("second office process not started");
+                }
+                Thread.sleep(100);
+            }
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void limitConcurrentHeavyTasks() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager = start(new DefaultOfficeManagerConfiguration()
+            .setPortNumbers(2002, 2003).setHeavyTasks(100, 1));
+        try {
+            MockOfficeTask heavyTask = new MockOfficeTask(BUSY_TIME);
+            heavyTask.setEstimatedCost(100);
+            CompletableFuture<Void> heavy = officeManager.submit(heavyTask);
+            MockOfficeTask nextHeavyTask = new MockOfficeTask();
+            nextHeavyTask.setEstimatedCost(1000);
+            CompletableFuture<Void> nextHeavy = officeManager.submit(nextHeavyTask);
+            // waits although a process is idle
+            assertEquals(officeManager.getQueueDepth(), 1);
+
+            // while light tasks still get the idle process
+            MockOfficeTask lightTask = new MockOfficeTask();
+            lightTask.setEstimatedCost(99);
+            officeManager.execute(lightTask);
+            assertTrue(lightTask.isCompleted());
+            assertFalse(nextHeavyTask.isCompleted());
+
+            CompletableFuture.allOf(heavy, nextHeavy).get();
+            assertTrue(nextHeavyTask.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    public void failTaskWhoseDeadlineExpires() throws Exception
+    {
+        ProcessPoolOfficeManager officeManager =
+            start(new DefaultOfficeManagerConfiguration().setPortNumbers(2002));
+        try {
+            MockOfficeTask lateTask = new MockOfficeTask();
+            lateTask.setDeadline(System.nanoTime() - 1);
+            assertDeadlineExpired(officeManager.submit(lateTask));
+
+            CompletableFuture<Void> busy = officeManager.submit(new MockOfficeTask(BUSY_TIME));
+            MockOfficeTask queuedTask = new MockOfficeTask();
+            queuedTask.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500));
+            assertDeadlineExpired(officeManager.submit(queuedTask));
+            // the task failed while waiting, not after the busy process became available
+            assertFalse(busy.isDone());
+            assertEquals(officeManager.getQueueDepth(), 0);
+            busy.get();
+
+            // the deadline also bounds the execution time
+            MockOfficeTask slowTask = new MockOfficeTask(BUSY_TIME);
+            slowTask.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1000));
+            assertDeadlineExpired(officeManager.submit(slowTask));
+            assertFalse(lateTask.isCompleted());
+            assertFalse(queuedTask.isCompleted());
+            assertFalse(slowTask.isCompleted());
+        } finally {
+            officeManager.stop();
+        }
+    }
+
+    private void assertDeadlineExpired(CompletableFuture<Void> result) throws InterruptedException
+    {
+        Throwable failure = assertFailure(result, OfficeException.class);
+        assertTrue(failure.getCause() instanceof TimeoutException, "unexpected failure: " + failure);
+    }
+
+    private void waitForStandby(ProcessPoolOfficeManager officeManager) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + BACKGROUND_START_TIME;
+        while (!(Boolean) ReflectionUtils.getPrivateField(officeManager, "standbyReady")) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("standby office process not ready");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private ProcessPoolOfficeManager start(DefaultOfficeManagerConfiguration configuration)
+    {
+        ProcessPoolOfficeManager officeManager = (ProcessPoolOfficeManager) configuration.buildOfficeManager();
+        officeManager.start();
+        return officeManager;
+    }
+
+    private Throwable assertFailure(CompletableFuture<Void> result, Class<? extends Throwable> expectedType)
+        throws InterruptedException
+    {
+        try {
+            result.get();
+            fail("expected " + expectedType.getSimpleName());
+            return null;
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            assertTrue(expectedType.isInstance(cause), "unexpected failure: " + cause);
+            return cause;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+@Test
+public class RetryPolicyTest
+{
+    public void fixedDelay()
+    {
+        RetryPolicy retryPolicy = RetryPolicy.fixed(250L);
+        assertEquals(retryPolicy.getDelay(1), 250L);
+        assertEquals(retryPolicy.getDelay(10), 250L);
+    }
+
+    public void exponentialDelay()
+    {
+        RetryPolicy retryPolicy = RetryPolicy.exponential(50L, 1000L, 2.0, 0.0);
+        assertEquals(retryPolicy.getDelay(1), 50L);
+        assertEquals(retryPolicy.getDelay(2), 100L);
+        assertEquals(retryPolicy.getDelay(3), 200L);
+        assertEquals(retryPolicy.getDelay(10), 1000L);
+    }
+
+    public void jitterOnlyShortensDelay()
+    {
+        RetryPolicy retryPolicy = RetryPolicy.exponential(100L, 100L, 2.0, 0.5);
+        for (int i = 0; i < 100; i++) {
+            long delay = retryPolicy.getDelay(1);
+            assertTrue(delay >= 50L && delay <= 100L, "delay out of range: " + delay);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+//
+// JODConverter - Java OpenDocument Converter
+// Copyright 2004-2012 Mirko Nasato and contributors
+//
+// JODConverter is Open Source software, you can redistribute it and/or
+// modify it under either (at your option) of the following licenses
+//
+// 1. The GNU Lesser General Public License v3 (or later)
+//    -> http://www.gnu.org/licenses/lgpl-3.0.txt
+// 2. The Apache License, Version 2.0
+//    -> http://www.apache.org/licenses/LICENSE-2.0.txt
+//
+package org.artofsolving.jodconverter.office;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * {@link PooledOfficeManager} that doesn't run any office process, to test how tasks are dispatched to a pool. The
+ * tasks submitted to it are not executed: each one keeps running until {@link #finishTask()} is called.
+ * <p>
+ * Like office processes, office managers sharing a set of running UNO URLs can't be started on a UNO URL until the
+ * office manager that used it is stopped.
+ */
+class StubPooledOfficeManager extends PooledOfficeManager
+{
+    private final String acceptString;
+
+    private final Set<String> runningAcceptStrings;
+
+    private volatile OfficeTask currentTask;
+
+    private volatile CompletableFuture<Void> currentResult;
+
+    private volatile CountDownLatch startGate = new CountDownLatch(0);
+
+    private volatile CountDownLatch stopGate = new CountDownLatch(0);
+
+    private volatile boolean failStart = false;
+
+    private volatile boolean exhausted = false;
+
+    private volatile int restartCount;
+
+    private volatile boolean running = false;
+
+    public StubPooledOfficeManager(UnoUrl unoUrl, Set<String> runningAcceptStrings)
+    {
+        super(unoUrl);
+        this.acceptString = unoUrl.getAcceptString();
+        this.runningAcceptStrings = runningAcceptStrings;
+    }
+
+    @Override
+    public void start() throws OfficeException
+    {
+        try {
+            this.startGate.await();
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted while starting", interruptedException);
+        }
+        if (this.failStart) {
+            throw new OfficeException("could not start office process");
+        }
+        synchronized (this.runningAcceptStrings) {
+            if (!this.runningAcceptStrings.add(this.acceptString)) {
+                throw new OfficeException("a process with acceptString '" + this.acceptString
+                    + "' is already running");
+            }
+        }
+        this.running = true;
+    }
+
+    @Override
+    public void restart() throws OfficeException
+    {
+        this.restartCount++;
+        this.exhausted = false;
+    }
+
+    @Override
+    public void stop() throws OfficeException
+    {
+        try {
+            this.stopGate.await();
+        } catch (InterruptedException interruptedException) {
+            throw new OfficeException("interrupted while stopping", interruptedException);
+        }
+        if (this.running) {
+            this.running = false;
+            synchronized (this.runningAcceptStrings) {
+                this.runningAcceptStrings.remove(this.acceptString);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return this.running;
+    }
+
+    @Override
+    boolean isExhausted()
+    {
+        return this.exhausted;
+    }
+
+    @Override
+    public CompletableFuture<Void> submit(OfficeTask task)
+    {
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        this.currentTask = task;
+        this.currentResult = result;
+        return result;
+    }
+
+    /**
+     * @return the task running on this office manager, or <code>null</code> if it is idle
+     */
+    OfficeTask getCurrentTask()
+    {
+        return this.currentTask;
+    }
+
+    /**
+     * Completes the running task, which releases this office manager to the pool.
+     */
+    void finishTask()
+    {
+        CompletableFuture<Void> result = this.currentResult;
+        this.currentTask = null;
+        this.currentResult = null;
+        result.complete(null);
+    }
+
+    /**
+     * Makes {@link #start()} wait until {@link #releaseStart()} is called.
+     */
+    void holdStart()
+    {
+        this.startGate = new CountDownLatch(1);
+    }
+
+    void releaseStart()
+    {
+        this.startGate.countDown();
+    }
+
+    /**
+     * Makes {@link #stop()} wait until {@link #releaseStop()} is called.
+     */
+    void holdStop()
+    {
+        this.stopGate = new CountDownLatch(1);
+    }
+
+    void releaseStop()
+    {
+        this.stopGate.countDown();
+    }
+
+    void setFailStart(boolean failStart)
+    {
+        this.failStart = failStart;
+    }
+
+    void setExhausted(boolean exhausted)
+    {
+        this.exhausted = exhausted;
+    }
+
+    int getRestartCount()
+    {
+        return this.restartCount;
+    }
+}
@@ -42,6 +42,25 @@ public void linuxProcessManager() throws Exception
         assertEquals(processManager.findPid(query), ProcessManager.PID_NOT_FOUND);
     }
 
+    public void procFsProcessManager() throws Exception
+    {
+        if (!PlatformUtils.isLinux()) {
+            throw new SkipException("ProcFsProcessManager can only be tested on Linux");
+        }
+
+        ProcessManager processManager = new ProcFsProcessManager();
+        Process process = new ProcessBuilder("sleep", "5s").start();
+        ProcessQuery query = new ProcessQuery("sleep", "5s");
+
+        long pid = processManager.findPid(query);
+        assertFalse(pid == ProcessManager.PID_NOT_FOUND);
+        assertEquals(processManager.getPid(process), pid);
+
+        processManager.kill(process, pid);
+        process.waitFor();
+        assertEquals(processManager.findPid(query), ProcessManager.PID_NOT_FOUND);
+    }
+
     public void sigarProcessManager() throws Exception
     {
         ProcessManager processManager = new SigarProcessManager();
@@ -2,10 +2,14 @@
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -24,8 +28,24 @@ public class ConverterServlet extends HttpServlet {
 
     private static final long serialVersionUID = -591469426224201748L;
 
+    /** Request attribute holding the file handed to the container; it is deleted after the request is destroyed. */
+    static final String SENT_FILE_ATTRIBUTE = ConverterServlet.class.getName() + ".sentFile";
+
+    private static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
     private final Logger logger = Logger.getLogger(getClass().getName());
 
+    /**
+     * When set with the <code>streamOutput</code> init-param, the converted document is written to the response while
+     * office stores it, instead of going through a temp file; no Content-Length is sent and ranges are not supported.
+     */
+    private boolean streamOutput;
+
+	@Override
+	public void init() throws ServletException {
+		streamOutput = Boolean.parseBoolean(getInitParameter("streamOutput"));
+	}
+
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         if (!ServletFileUpload.isMultipartContent(request)) {
@@ -51,45 +71,98 @@ protected void doPost(HttpServletRequest request, HttpServletResponse response)
         String inputExtension = FilenameUtils.getExtension(uploadedFile.getName());
 
         String baseName = FilenameUtils.getBaseName(uploadedFile.getName());
-        File inputFile = File.createTempFile(baseName, "." + inputExtension);
-        writeUploadedFile(uploadedFile, inputFile);
-        File outputFile = File.createTempFile(baseName, "." + outputExtension);
+        // the upload is streamed to office as is; unless streamOutput is set, the output goes through a temp file
+        // so that its length is known and ranges can be served
+        File outputFile = streamOutput ? null : File.createTempFile(baseName, "." + outputExtension);
+        boolean outputFileSent = false;
+        InputStream inputStream = null;
+        OutputStream outputStream = null;
         try {
+            DocumentFormat inputFormat = converter.getFormatRegistry().getFormatByExtension(inputExtension);
             DocumentFormat outputFormat = converter.getFormatRegistry().getFormatByExtension(outputExtension);
+            inputStream = uploadedFile.getInputStream();
+            if (streamOutput) {
+            	response.setContentType(outputFormat.getMediaType());
+            	response.setHeader("Content-Disposition", "attachment; filename="+ baseName + "." + outputExtension);
+            	outputStream = response.getOutputStream();
+            } else {
+            	outputStream = new FileOutputStream(outputFile);
+            }
         	long startTime = System.currentTimeMillis();
-        	converter.convert(inputFile, outputFile);
+        	converter.convert(inputStream, inputFormat, outputStream, outputFormat);
+        	outputStream.close();
         	long conversionTime = System.currentTimeMillis() - startTime;
-        	logger.info(String.format("successful conversion: %s [%db] to %s in %dms", inputExtension, inputFile.length(), outputExtension, conversionTime));
-        	response.setContentType(outputFormat.getMediaType());
-            response.setHeader("Content-Disposition", "attachment; filename="+ baseName + "." + outputExtension);
-            sendFile(outputFile, response);
+        	logger.info(String.format("successful conversion: %s [%db] to %s in %dms", inputExtension, uploadedFile.getSize(), outputExtension, conversionTime));
+        	if (!streamOutput) {
+        		response.setContentType(outputFormat.getMediaType());
+        		response.setHeader("Content-Disposition", "attachment; filename="+ baseName + "." + outputExtension);
+        		outputFileSent = sendFile(outputFile, request, response);
+        	}
         } catch (Exception exception) {
-            logger.severe(String.format("failed conversion: %s [%db] to %s; %s; input file: %s", inputExtension, inputFile.length(), outputExtension, exception, inputFile.getName()));
+            logger.severe(String.format("failed conversion: %s [%db] to %s; %s; input file: %s", inputExtension, uploadedFile.getSize(), outputExtension, exception, uploadedFile.getName()));
         	throw new ServletException("conversion failed", exception);
-        } finally {
-        	outputFile.delete();
-        	inputFile.delete();
-        }
-	}
-
-	private void sendFile(File file, HttpServletResponse response) throws IOException {
-		response.setContentLength((int) file.length());
-        InputStream inputStream = null;
-        try {
-        	inputStream = new FileInputStream(file);
-            IOUtils.copy(inputStream, response.getOutputStream());
         } finally {
         	IOUtils.closeQuietly(inputStream);
+        	IOUtils.closeQuietly(outputStream);
+        	if (outputFile != null && !outputFileSent) {
+        		outputFile.delete();
+        	}
+        	uploadedFile.delete();
         }
 	}
 
-	private void writeUploadedFile(FileItem uploadedFile, File destinationFile) throws ServletException {
-        try {
-			uploadedFile.write(destinationFile);
-		} catch (Exception exception) {
-			throw new ServletException("error writing uploaded file", exception);
+	/**
+	 * Sends the file, or the single byte range asked for. Requests for several ranges get the whole file.
+	 * <p>
+	 * When the container advertises sendfile support (Tomcat's <code>org.apache.tomcat.sendfile.support</code>
+	 * request attribute), the file is handed to it and sent without going through the JVM heap; it is then deleted
+	 * after the request is over, see {@link WebappContext#deleteSentFile(File)}. Other containers get a plain copy
+	 * through a heap buffer.
+	 *
+	 * @return whether the file was handed to the container, which makes it responsible for deleting the file
+	 */
+	private boolean sendFile(File file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		long length = file.length();
+		long start = 0;
+		long end = length - 1;
+		response.setHeader("Accept-Ranges", "bytes");
+		Matcher rangeMatcher = SINGLE_BYTE_RANGE.matcher(String.valueOf(request.getHeader("Range")));
+		if (rangeMatcher.matches() && rangeMatcher.group(1).length() + rangeMatcher.group(2).length() > 0) {
+			if (rangeMatcher.group(1).length() == 0) {
+				// suffix range: the last n bytes
+				start = Math.max(0, length - Long.parseLong(rangeMatcher.group(2)));
+			} else {
+				start = Long.parseLong(rangeMatcher.group(1));
+				if (rangeMatcher.group(2).length() > 0) {
+					end = Math.min(end, Long.parseLong(rangeMatcher.group(2)));
+				}
+			}
+			if (start >= length || start > end) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return false;
+			}
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+		}
+		// setContentLength(int) would overflow for files over 2 GB
+		response.setHeader("Content-Length", Long.toString(end - start + 1));
+		if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+			request.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+			request.setAttribute("org.apache.tomcat.sendfile.start", Long.valueOf(start));
+			// the end is exclusive
+			request.setAttribute("org.apache.tomcat.sendfile.end", Long.valueOf(end + 1));
+			request.setAttribute(SENT_FILE_ATTRIBUTE, file);
+			return true;
+		}
+		FileInputStream inputStream = null;
+		try {
+			inputStream = new FileInputStream(file);
+			IOUtils.copyLarge(inputStream, response.getOutputStream(), start, end - start + 1);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
 		}
-		uploadedFile.delete();
+		return false;
 	}
 
 	private FileItem getUploadedFile(ServletFileUpload fileUpload, HttpServletRequest request) throws FileUploadException {
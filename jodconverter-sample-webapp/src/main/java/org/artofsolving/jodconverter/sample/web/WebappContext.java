@@ -1,6 +1,11 @@
 package org.artofsolving.jodconverter.sample.web;
 
 import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletContext;
@@ -22,11 +27,25 @@ public class WebappContext {
 
 	private static final String KEY = WebappContext.class.getName();
 
+	/**
+	 * How long after a request has completed the file it handed to the container is deleted; the container only
+	 * opens it once the servlet has returned, so it can't be deleted at that point.
+	 */
+	private static final long SENT_FILE_DELETE_DELAY = 30;
+
 	private final ServletFileUpload fileUpload;
 
 	private final OfficeManager officeManager;
 	private final OfficeDocumentConverter documentConverter;
 
+	private final ScheduledExecutorService fileCleaner = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "jodconverter-file-cleaner");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	public WebappContext(ServletContext servletContext) {
 		DiskFileItemFactory fileItemFactory = new DiskFileItemFactory();
 		String fileSizeMax = servletContext.getInitParameter(PARAMETER_FILEUPLOAD_FILE_SIZE_MAX);
@@ -65,6 +84,9 @@ protected static void init(ServletContext servletContext) {
 	protected static void destroy(ServletContext servletContext) {
 		WebappContext instance = get(servletContext);
 		instance.officeManager.stop();
+		for (Runnable pendingDelete : instance.fileCleaner.shutdownNow()) {
+			pendingDelete.run();
+		}
 	}
 
 	public static WebappContext get(ServletContext servletContext) {
@@ -83,4 +105,27 @@ public OfficeDocumentConverter getDocumentConverter() {
         return documentConverter;
     }
 
+	/**
+	 * Deletes a file the container sends by itself once it is done with it. Where an open file can't be deleted, the
+	 * deletion is retried until the container has closed it.
+	 */
+	public void deleteSentFile(final File file) {
+		Runnable delete = new Runnable() {
+			public void run() {
+				if (!file.delete() && file.exists()) {
+					try {
+						fileCleaner.schedule(this, SENT_FILE_DELETE_DELAY, TimeUnit.SECONDS);
+					} catch (RejectedExecutionException rejectedExecutionException) {
+						file.deleteOnExit();
+					}
+				}
+			}
+		};
+		try {
+			fileCleaner.schedule(delete, SENT_FILE_DELETE_DELAY, TimeUnit.SECONDS);
+		} catch (RejectedExecutionException rejectedExecutionException) {
+			file.deleteOnExit();
+		}
+	}
+
 }
@@ -1,9 +1,13 @@
 package org.artofsolving.jodconverter.sample.web;
 
+import java.io.File;
+
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
 
-public class WebappContextListener implements ServletContextListener {
+public class WebappContextListener implements ServletContextListener, ServletRequestListener {
 
 	public void contextInitialized(ServletContextEvent event) {
 		WebappContext.init(event.getServletContext());
@@ -13,4 +17,14 @@ public void contextDestroyed(ServletContextEvent event) {
 		WebappContext.destroy(event.getServletContext());
 	}
 
+	public void requestInitialized(ServletRequestEvent event) {
+	}
+
+	public void requestDestroyed(ServletRequestEvent event) {
+		File sentFile = (File) event.getServletRequest().getAttribute(ConverterServlet.SENT_FILE_ATTRIBUTE);
+		if (sentFile != null) {
+			WebappContext.get(event.getServletContext()).deleteSentFile(sentFile);
+		}
+	}
+
 }